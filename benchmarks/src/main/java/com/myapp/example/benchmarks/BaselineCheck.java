@@ -0,0 +1,152 @@
+package com.myapp.example.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Compares JMH results with the stored baseline and fails when a benchmark got slower.
+ *
+ * Usage:
+ * - java -cp target/benchmarks.jar com.myapp.example.benchmarks.BaselineCheck target/jmh-result.json
+ *   compares with baseline/baseline.json, exit code 1 when a benchmark regressed
+ * - ... BaselineCheck target/jmh-result.json --update
+ *   stores the results as the new baseline, e.g. after an intended change or on a new reference machine
+ *
+ * Description:
+ * - Results are matched by benchmark name and parameters. Benchmarks missing on either side are listed, not failed.
+ * - A benchmark regressed when its score is worse than the baseline by more than 'benchmark.tolerance'
+ *   (default 0.25, i.e. 25%) plus the error margins of both measurements. Lower is better for time modes,
+ *   higher for throughput.
+ */
+public class BaselineCheck {
+
+	private static final String DEFAULT_BASELINE = "baseline/baseline.json";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: BaselineCheck <jmh-result.json> [baseline.json] [--update]");
+			System.exit(2);
+		}
+		Path results = Paths.get(args[0]);
+		Path baseline = Paths.get(args.length > 1 && !args[1].startsWith("--") ? args[1] : DEFAULT_BASELINE);
+		boolean update = args[args.length - 1].equals("--update");
+		Map<String, JSONObject> current = read(results);
+		if (update) {
+			write(current, baseline);
+			System.out.println("Baseline " + baseline + " updated with " + current.size() + " benchmarks");
+			return;
+		}
+		if (!Files.exists(baseline)) {
+			System.err.println("No baseline at " + baseline + ", record one with --update");
+			System.exit(2);
+		}
+		double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.25"));
+		int regressions = compare(read(baseline), current, tolerance);
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	/** Prints one line per benchmark, returns the number of regressions */
+	static int compare(Map<String, JSONObject> baseline, Map<String, JSONObject> current, double tolerance) {
+		int regressions = 0;
+		for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+			JSONObject before = baseline.get(entry.getKey());
+			if (before == null) {
+				System.out.println("NEW        " + entry.getKey());
+				continue;
+			}
+			JSONObject after = entry.getValue();
+			double baseScore = before.getDouble("score");
+			double score = after.getDouble("score");
+			double margin = baseScore * tolerance + error(before) + error(after);
+			boolean higherIsBetter = "thrpt".equals(after.getString("mode"));
+			boolean regressed = higherIsBetter ? score < baseScore - margin : score > baseScore + margin;
+			double change = (score - baseScore) / baseScore * 100;
+			System.out.println(String.format(Locale.ROOT, "%-10s %s %.3f -> %.3f %s (%+.1f%%)",
+					regressed ? "REGRESSED" : "OK", entry.getKey(), baseScore, score, after.getString("unit"), change));
+			if (regressed) {
+				regressions++;
+			}
+		}
+		for (String name : baseline.keySet()) {
+			if (!current.containsKey(name)) {
+				System.out.println("NOT RUN    " + name);
+			}
+		}
+		return regressions;
+	}
+
+	/**
+	 * Reads JMH JSON output (-rf json) or a stored baseline into scores keyed by benchmark and parameters.
+	 * The baseline keeps only the fields needed for comparison.
+	 */
+	static Map<String, JSONObject> read(Path file) throws IOException {
+		String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+		Map<String, JSONObject> scores = new TreeMap<>();
+		if (json.startsWith("{")) {
+			JSONObject stored = new JSONObject(json).getJSONObject("benchmarks");
+			for (String name : stored.keySet()) {
+				scores.put(name, stored.getJSONObject(name));
+			}
+			return scores;
+		}
+		JSONArray runs = new JSONArray(json);
+		for (int i = 0; i < runs.length(); i++) {
+			JSONObject run = runs.getJSONObject(i);
+			JSONObject metric = run.getJSONObject("primaryMetric");
+			double error = metric.optDouble("scoreError", 0);
+			scores.put(key(run), new JSONObject()
+					.put("mode", run.getString("mode"))
+					.put("score", metric.getDouble("score"))
+					.put("error", Double.isNaN(error) ? 0 : error)
+					.put("unit", metric.getString("scoreUnit")));
+		}
+		return scores;
+	}
+
+	private static void write(Map<String, JSONObject> scores, Path baseline) throws IOException {
+		JSONObject benchmarks = new JSONObject();
+		for (Map.Entry<String, JSONObject> entry : scores.entrySet()) {
+			benchmarks.put(entry.getKey(), entry.getValue());
+		}
+		JSONObject json = new JSONObject()
+				.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"))
+				.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"))
+				.put("processors", Runtime.getRuntime().availableProcessors())
+				.put("benchmarks", benchmarks);
+		if (baseline.getParent() != null) {
+			Files.createDirectories(baseline.getParent());
+		}
+		Files.write(baseline, json.toString(2).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** Benchmark name without package, followed by its parameters, e.g. PriceAnalysisBenchmark.calculateAveragePrice[products=1000] */
+	private static String key(JSONObject run) {
+		String benchmark = run.getString("benchmark");
+		String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+		JSONObject params = run.optJSONObject("params");
+		if (params == null || params.isEmpty()) {
+			return name;
+		}
+		StringBuilder key = new StringBuilder(name).append('[');
+		for (String param : new TreeMap<>(params.toMap()).keySet()) {
+			if (key.charAt(key.length() - 1) != '[') {
+				key.append(',');
+			}
+			key.append(param).append('=').append(params.get(param));
+		}
+		return key.append(']').toString();
+	}
+
+	private static double error(JSONObject score) {
+		return score.optDouble("error", 0);
+	}
+}
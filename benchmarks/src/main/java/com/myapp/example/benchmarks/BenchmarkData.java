@@ -0,0 +1,39 @@
+package com.myapp.example.benchmarks;
+
+import java.util.Random;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import com.myapp.example.pages.ProductResults;
+
+/**
+ * Generated inputs shared by the benchmarks. A fixed seed gives every run and every fork the same data.
+ */
+final class BenchmarkData {
+
+	static final long SEED = 20231119L;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Turns framework logging off, so benchmarks measure the code itself and not the appenders.
+	 */
+	static void disableLogging() {
+		Configurator.setAllLevels(LogManager.ROOT_LOGGER_NAME, Level.OFF);
+	}
+
+	/** Products with prices between 999 and 299 999, like SearchPage.extractProductPrices returns */
+	static ProductResults productPrices(int size) {
+		Random random = new Random(SEED);
+		String[] names = new String[size];
+		int[] prices = new int[size];
+		for (int i = 0; i < size; i++) {
+			names[i] = "Product " + i + " " + Long.toHexString(random.nextLong());
+			prices[i] = 999 + random.nextInt(299_000);
+		}
+		return new ProductResults(names, prices);
+	}
+}
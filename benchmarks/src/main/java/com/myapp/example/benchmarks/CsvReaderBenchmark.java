@@ -0,0 +1,104 @@
+package com.myapp.example.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.myapp.example.base.CsvDataProviders;
+
+/**
+ * CsvDataProviders.csvReader handing all rows of a big CSV file to a data-driven test, once per read path:
+ * the compiled binary copy (default for big files), the parsed dataset cache and plain streaming of the CSV.
+ *
+ * Notes:
+ * - The CSV file is generated once, in the data provider folder csvReader expects for the 'bigDataset' method
+ *   of this class. It is ignored by git.
+ * - Each read path runs in its own fork with the configuration that selects it. The cached path gets a cache big
+ *   enough for the parsed dataset, which is several times the size of the file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CsvReaderBenchmark {
+
+	static final int ROWS = 200_000;
+
+	private Method dataMethod;
+
+	/** Test method whose data file is read, never called */
+	public void bigDataset() {
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkData.disableLogging();
+		dataMethod = CsvReaderBenchmark.class.getMethod("bigDataset");
+		File file = CsvDataProviders.getDataFile(dataMethod);
+		if (!file.exists()) {
+			writeDataset(file);
+		}
+	}
+
+	@Benchmark
+	public void compiled(Blackhole blackhole) {
+		consume(CsvDataProviders.csvReader(dataMethod), blackhole);
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "-Dcsv.compile=false", "-Dcsv.cache.maxBytes=1073741824" })
+	public void cached(Blackhole blackhole) {
+		consume(CsvDataProviders.csvReader(dataMethod), blackhole);
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "-Dcsv.compile=false", "-Dcsv.cache.maxBytes=0" })
+	public void streamed(Blackhole blackhole) {
+		consume(CsvDataProviders.csvReader(dataMethod), blackhole);
+	}
+
+	/** Reads every value, as a test using each column of its row would */
+	private static void consume(Iterator<Object[]> rows, Blackhole blackhole) {
+		while (rows.hasNext()) {
+			Object row = rows.next()[0];
+			for (Object value : ((Map<?, ?>) row).values()) {
+				blackhole.consume(value);
+			}
+		}
+	}
+
+	private static void writeDataset(File file) throws IOException {
+		Files.createDirectories(file.toPath().getParent());
+		Random random = new Random(BenchmarkData.SEED);
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write("id,searchTerm,category,minPrice,maxPrice,expectedText\n");
+			for (int i = 0; i < ROWS; i++) {
+				writer.write(i + ",\"item " + Long.toHexString(random.nextLong()) + "\",category" + random.nextInt(40)
+						+ "," + random.nextInt(10_000) + "," + (10_000 + random.nextInt(290_000))
+						+ ",\"Expected, quoted text " + random.nextInt() + "\"\n");
+			}
+		}
+	}
+}
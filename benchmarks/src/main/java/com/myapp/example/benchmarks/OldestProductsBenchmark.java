@@ -0,0 +1,76 @@
+package com.myapp.example.benchmarks;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.myapp.example.api.utils.UtilsForAPI;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+
+/**
+ * UtilsForAPI.takeAllOldestProductsOnAction on actions responses of several megabytes, built in memory instead
+ * of calling the API. The response body is parsed again on every call, as in the test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OldestProductsBenchmark {
+
+	/** About 150 bytes per item, 50 000 items give a 7 MB response */
+	@Param({ "5000", "50000" })
+	public int items;
+
+	private UtilsForAPI apiUtils;
+	private String body;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData.disableLogging();
+		apiUtils = new UtilsForAPI();
+		body = actionsResponse(items);
+	}
+
+	@Benchmark
+	public Response takeAllOldestProductsOnAction() {
+		Response response = new ResponseBuilder().setStatusCode(200).setContentType(ContentType.JSON).setBody(body).build();
+		apiUtils.takeAllOldestProductsOnAction(response);
+		return response;
+	}
+
+	/** Body shaped like the actions endpoint: {"items":[{"title","link","date","price"}, ...]} */
+	static String actionsResponse(int items) {
+		Random random = new Random(BenchmarkData.SEED);
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+		LocalDate today = LocalDate.of(2023, 11, 19);
+		StringBuilder json = new StringBuilder(items * 160).append("{\"items\":[");
+		for (int i = 0; i < items; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"title\":\"Product on action ").append(i)
+					.append("\",\"link\":\"https://gigatron.rs/proizvod/").append(Long.toHexString(random.nextLong()))
+					.append("\",\"date\":\"").append(today.minusDays(random.nextInt(365)).format(formatter))
+					.append("\",\"price\":").append(999 + random.nextInt(299_000)).append('}');
+		}
+		return json.append("]}").toString();
+	}
+}
@@ -0,0 +1,92 @@
+package com.myapp.example.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.myapp.example.pages.ProductResults;
+import com.myapp.example.pages.SearchPage;
+
+/**
+ * Price calculations of SearchPage on result lists far bigger than a real results page, to show how they scale.
+ * The page object gets no driver, none of the measured methods uses it.
+ *
+ * Notes:
+ * - findItemClosestToAveragePrice scans the prices, closestToAveragePriceSortedView does a binary search over the
+ *   sorted view built in setup and buildSortedView measures building that view.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PriceAnalysisBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int products;
+
+	private ProductResults prices;
+	private ProductResults sortedPrices;
+	private String[] names;
+	private int[] priceArray;
+	private SearchPage searchPage;
+	private double averagePrice;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData.disableLogging();
+		prices = BenchmarkData.productPrices(products);
+		names = new String[products];
+		priceArray = new int[products];
+		for (int i = 0; i < products; i++) {
+			names[i] = prices.getName(i);
+			priceArray[i] = prices.getPrice(i);
+		}
+		sortedPrices = new ProductResults(names, priceArray).buildSortedView();
+		searchPage = new SearchPage(null, LogManager.getLogger("PriceAnalysisBenchmark"));
+		averagePrice = searchPage.calculateAveragePrice(prices);
+	}
+
+	@Benchmark
+	public double calculateAveragePrice() {
+		return searchPage.calculateAveragePrice(prices);
+	}
+
+	@Benchmark
+	public Map.Entry<String, Integer> findSecondLowestPriceItem() {
+		return SearchPage.findSecondLowestPriceItem(prices);
+	}
+
+	@Benchmark
+	public Map.Entry<String, Integer> findItemClosestToAveragePrice() {
+		return SearchPage.findItemClosestToAveragePrice(prices, averagePrice);
+	}
+
+	@Benchmark
+	public Map.Entry<String, Integer> closestToAveragePriceSortedView() {
+		return SearchPage.findItemClosestToAveragePrice(sortedPrices, averagePrice);
+	}
+
+	@Benchmark
+	public ProductResults buildSortedView() {
+		return new ProductResults(names, priceArray).buildSortedView();
+	}
+
+	@Benchmark
+	public double medianPrice() {
+		return prices.median();
+	}
+}
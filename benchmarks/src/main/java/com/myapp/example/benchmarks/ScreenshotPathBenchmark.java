@@ -0,0 +1,36 @@
+package com.myapp.example.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.myapp.example.base.ScreenshotPath;
+
+/**
+ * Screenshot path building done for every screenshot of a test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScreenshotPathBenchmark {
+
+	private final LocalDateTime time = LocalDateTime.of(2023, 11, 19, 14, 5, 33, 123_000_000);
+
+	@Benchmark
+	public String build() {
+		return ScreenshotPath.build("/home/ci/workspace/my-demo-selenium", time, "FullSuite", "Search_test",
+				"gigatron_003_validateSecondLowestPrice", "after search");
+	}
+}
@@ -1,5 +1,6 @@
 package com.myapp.example.base;
 
+import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
@@ -15,14 +16,12 @@ import org.testng.ITestResult;
 import org.testng.annotations.*;
 
 import static com.myapp.example.base.TestRailAPI.createTestRunAndGetId;
-import static com.myapp.example.base.TestRailAPI.getTestCaseIdInTestRun;
 import static io.restassured.RestAssured.given;
 
-@Listeners({ TestListener.class })
+@Listeners({ TestListener.class, ShardMethodInterceptor.class, HistoryMethodInterceptor.class })
 
 public class BaseTest {
 
-	protected WebDriver driver;
 	protected Logger log;
 
 	protected String testSuiteName;
@@ -41,7 +40,7 @@ public class BaseTest {
 	 *                    The parameter is optional and defaults to "production" if not provided.
 	 *
 	 * Description:
-	 * - The method retrieves the base URL for the specified environment using the EnvironmentConfig class.
+	 * - The method selects the environment in the EnvironmentConfig class and retrieves its base URL.
 	 * - It initializes the logger for the test suite and logs the base URL that will be used for testing.
 	 * - The base URL is stored in the 'pageUrl' field, presumably used by subsequent tests.
 	 *
@@ -52,14 +51,15 @@ public class BaseTest {
 	 * Note:
 	 * - This method is annotated with @BeforeSuite(alwaysRun = true), ensuring it always runs before the test suite,
 	 *   regardless of other method dependencies.
-	 * - The method assumes the existence of a static method EnvironmentConfig.getBaseUrl, which retrieves the base URL.
+	 * - Page objects read the same URL through EnvironmentConfig.getBaseUrl() once the environment is selected here.
 	 */
 	@BeforeSuite(alwaysRun = true)
 	@Parameters("environment")
 	public void setUpUrl(@Optional("production") String environment) {
-		pageUrl = EnvironmentConfig.getBaseUrl(environment);
+		EnvironmentConfig.selectEnvironment(environment);
+		pageUrl = EnvironmentConfig.getBaseUrl();
 		log = LogManager.getLogger(testName);
-		log.info("URL under testing: " + pageUrl);
+		log.info("URL under testing: {}", pageUrl);
 	}
 
 	private boolean shouldUpdateTestRail;
@@ -75,6 +75,7 @@ public class BaseTest {
 	 *
 	 * Description:
 	 * - The method first reads the configuration to determine whether to update TestRail results.
+	 * - If 'testRail.runId' is set, results go to that existing Test Run instead of a new one.
 	 * - If updates are required, it generates a unique identifier for the new Test Run based on the current date and time.
 	 * - It then creates a new Test Run in TestRail with this identifier and logs the creation.
 	 *
@@ -86,15 +87,20 @@ public class BaseTest {
 	@BeforeSuite
 	public void setUpTestRail(ITestContext context) {
 		//next code block is reading if we should update Test  Rail results
-		String updateTestRail = TestRailAPI.getProperty("updateTestRail", "false");
-		updateTestRail = System.getProperty("updateTestRail", updateTestRail);
-		shouldUpdateTestRail = "true".equalsIgnoreCase(updateTestRail);
+		shouldUpdateTestRail = EnvironmentConfig.getBoolean("updateTestRail", false);
 		// above code block is reading if we should update Test  Rail results
 		if (shouldUpdateTestRail != false) {
+			log = LogManager.getLogger("TestRail");
+			int existingTestRunId = EnvironmentConfig.getInt("testRail.runId", 0);
+			if (existingTestRunId > 0) {
+				// Run created once for all worker JVMs, see DistributedCoordinator
+				log.info("Using Test Run with id: {}", existingTestRunId);
+				currentTestRunId = existingTestRunId;
+				return;
+			}
 			String getTodaysDate = new SimpleDateFormat("yyMMdd_HHmm").format(new Date());
 			int testRunId = createTestRunAndGetId(1, "TestRun_" + getTodaysDate, "This is a description of the new test run.");
-			log = LogManager.getLogger("TestRail");
-			log.info("Created Test Run with id: " + testRunId);
+			log.info("Created Test Run with id: {}", testRunId);
 			currentTestRunId = testRunId;
 		}
 	}
@@ -111,6 +117,33 @@ public class BaseTest {
 	}
 
 
+	/**
+	 * Starts the InvocationContext of the test method about to run, with the data provider row it gets, if any.
+	 * Also begins the PhaseTimings record of the invocation and marks log events of its thread for the in-memory
+	 * test log (see TestLogBufferAppender).
+	 * Runs before configuration methods of subclasses, so they can already store the web driver in the context.
+	 *
+	 * @param method The test method that will be executed next.
+	 * @param parameters Parameters of the invocation. Data provider rows are passed as the first parameter.
+	 */
+	@BeforeMethod(alwaysRun = true)
+	@SuppressWarnings("unchecked")
+	public void startInvocation(Method method, Object[] parameters) {
+		Map<String, String> testData = parameters.length > 0 && parameters[0] instanceof Map
+				? (Map<String, String>) parameters[0] : null;
+		InvocationContext.start(method.getName(), testData);
+		PhaseTimings.begin(getClass().getName() + "." + method.getName(), TestHistoryStore.rowKey(parameters));
+		TestLogBufferAppender.startInvocation(getClass().getSimpleName() + "." + method.getName());
+	}
+
+	/**
+	 * Web driver of the invocation running on the current thread.
+	 * Parallel data provider rows each run on their own thread, so they never share a driver.
+	 */
+	protected WebDriver getDriver() {
+		return InvocationContext.current().getDriver();
+	}
+
 	/**
 	 * Updates the test result in TestRail for the executed test method.
 	 * This method is called after each test method execution if TestRail integration is enabled.
@@ -122,40 +155,58 @@ public class BaseTest {
 	 * - The method takes an `ITestResult` object as an input, which contains information about the test's execution.
 	 *
 	 * Output:
-	 * - The method communicates with TestRail's API to update the test case's result based on the test execution status.
-	 * - Logs the start and completion of the update process, as well as any errors encountered.
+	 * - The method hands the test case's result over to TestRail reporting based on the test execution status.
+	 *   In the default async mode no TestRail I/O is done on the test thread.
+	 * - Logs any errors encountered.
 	 *
 	 * Notes:
 	 * - The method assumes the existence of `TestRailAPI`, a custom class to interact with TestRail's API.
-	 * - It uses a method `getTestCaseIdInTestRun` to retrieve the mapping of TestNG test methods to TestRail test cases.
+	 * - TestRail case IDs are resolved from the test method name by `TestRailAPI.reportTestResult`.
 	 * - The method `mapTestNGResultToTestRailStatus` is used to translate TestNG result status to TestRail status IDs.
 	 * - The method handles any exceptions during the API call and logs the error message.
+	 * - Time spent here is recorded as the 'testrail' phase of the invocation in PhaseTimings.
 	 */
 	@AfterMethod
 	public void updateTestRailResult(ITestResult result) {
 		if (shouldUpdateTestRail) {
-			log.info("[TestRail] Updating starting");
-			String testCase = String.valueOf(result.getMethod().getMethodName());
-			if (testCase != null) {
-				try {
-					TestRailAPI testRailAPI = new TestRailAPI();
-					Map<String, Integer> testArtifacts = getTestCaseIdInTestRun(currentTestRunId,testCase);
-					Integer testCaseId = testArtifacts.get("testCaseId");
-					//This is testCase RunID. Might be useful later for some operations
-					Integer testRunId = testArtifacts.get("testRunId");
-					int statusId = testRailAPI.mapTestNGResultToTestRailStatus(result.getStatus());
-					log.info("[TestRail] The Test Run ID is: " +currentTestRunId+ ", CaseID is: "
-							+ testCaseId + " and TestCaseRun ID is: " + testRunId+ " with statusID: " +statusId) ;
+			String testCase = result.getMethod().getMethodName();
+			try {
+				PhaseTimings.time(PhaseTimings.Phase.TESTRAIL, () -> {
+					int statusId = TestRailAPI.mapTestNGResultToTestRailStatus(result.getStatus());
 					String comment = "Automated test result comment";
 					//TestRail needs RunID, CaseID, Status of testCase and comment for executed case. Comment area should be developed further
-					testRailAPI.updateTestResult(currentTestRunId, testCaseId, statusId, comment);
-					log.info("[TestRail] Updating finished");
-				}catch (Exception e) {
-					log.info("[TestRail] Error updating result: " + e.getMessage());
-					}
-				}
+					//CaseID lookup and sending are done by TestRailAPI according to 'testRail.reportMode', see flushTestRailResults
+					TestRailAPI.reportTestResult(currentTestRunId, testCase, statusId, comment);
+				});
+			} catch (Exception e) {
+				log.info("[TestRail] Error updating result: {}", e.getMessage());
 			}
 		}
+	}
+
+	/**
+	 * Removes the InvocationContext of the finished invocation, so pooled data provider threads start clean.
+	 * The verdict of the invocation decides whether its in-memory test log is written to disk.
+	 *
+	 * @param result Result of the test method of this invocation.
+	 */
+	@AfterMethod(alwaysRun = true)
+	public void endInvocation(ITestResult result) {
+		InvocationContext.end();
+		TestLogBufferAppender.finishInvocation(result);
+	}
+
+	/**
+	 * Sends all TestRail results still buffered in memory once the whole suite has finished.
+	 * Results are submitted in bulk, so only the last partial batch is left for this method.
+	 */
+	@AfterSuite(alwaysRun = true)
+	public void flushTestRailResults() {
+		if (shouldUpdateTestRail) {
+			TestRailAPI.flushTestResults();
+			TestRailAPI.close();
+		}
+	}
 
 	/**
 	 * Sends a POST request to a specified URL and returns the response.
@@ -171,6 +222,7 @@ public class BaseTest {
 	 * Output:
 	 * - Returns a `Response` object which includes information like response body, status code, headers, etc.
 	 * - Logs information about the POST request and its response status.
+	 * - Records the request as a JFR HTTP call event, see FrameworkEvents.
 	 *
 	 */
 	protected Response postRequest(String url, String path, Map<String, String> headers, Map<String, Object> queryParams, Object body,int expectedStatus) {
@@ -188,9 +240,12 @@ public class BaseTest {
 		path = (path != null) ? path : "";
 
 		// Making the POST request
+		FrameworkEvents.HttpCall event = new FrameworkEvents.HttpCall();
+		event.begin();
 		Response response = request.post(path);
+		FrameworkEvents.commitHttpCall(event, "RestAssured", "POST", url + path, response.statusCode());
 		handleFailedResponse(response,expectedStatus);
-		log.info("POST request executed with status code "+ response.statusCode()+ ". Endpoint: "+ url+ ". Query params: " + queryParams);
+		log.info("POST request executed with status code {}. Endpoint: {}. Query params: {}", response.statusCode(), url, queryParams);
 		return response;
 	}
 
@@ -207,6 +262,7 @@ public class BaseTest {
 	 * Output:
 	 * - Returns a `Response` object which includes information like response body, status code, headers, etc.
 	 * - Logs information about the GET request and its response status.
+	 * - Records the request as a JFR HTTP call event, see FrameworkEvents.
 	 *
 	 */
 	protected Response getRequest(String url, String path, Map<String, String> headers, Map<String, Object> queryParams, int expectedStatus) {
@@ -220,9 +276,12 @@ public class BaseTest {
 		}
 		path = (path != null) ? path : "";
 
+		FrameworkEvents.HttpCall event = new FrameworkEvents.HttpCall();
+		event.begin();
 		Response response = request.get(path);
+		FrameworkEvents.commitHttpCall(event, "RestAssured", "GET", url + path, response.statusCode());
 		handleFailedResponse(response, expectedStatus);
-		log.info("GET request executed with status code " + response.statusCode() + ". Endpoint: " + url + ". Query params: " + queryParams);
+		log.info("GET request executed with status code {}. Endpoint: {}. Query params: {}", response.statusCode(), url, queryParams);
 		return response;
 	}
 	/**
@@ -239,6 +298,7 @@ public class BaseTest {
 	 * Output:
 	 * - Returns a `Response` object which includes information like response body, status code, headers, etc.
 	 * - Logs information about the PUT request and its response status.
+	 * - Records the request as a JFR HTTP call event, see FrameworkEvents.
 	 */
 	protected Response putRequest(String url, String path, Map<String, String> headers, Map<String, Object> queryParams, Object body, int expectedStatus) {
 		RequestSpecification request = given().baseUri(url);
@@ -254,9 +314,12 @@ public class BaseTest {
 		}
 		path = (path != null) ? path : "";
 
+		FrameworkEvents.HttpCall event = new FrameworkEvents.HttpCall();
+		event.begin();
 		Response response = request.put(path);
+		FrameworkEvents.commitHttpCall(event, "RestAssured", "PUT", url + path, response.statusCode());
 		handleFailedResponse(response, expectedStatus);
-		log.info("PUT request executed with status code " + response.statusCode() + ". Endpoint: " + url + ". Query params: " + queryParams);
+		log.info("PUT request executed with status code {}. Endpoint: {}. Query params: {}", response.statusCode(), url, queryParams);
 		return response;
 	}
 	/**
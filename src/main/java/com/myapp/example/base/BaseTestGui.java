@@ -1,5 +1,6 @@
 package com.myapp.example.base;
 
+import org.openqa.selenium.WebDriver;
 import org.testng.ITestContext;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -20,6 +21,9 @@ public class BaseTestGui extends BaseTest {
      *
      * Notes:
      * - The method assumes the existence of a `BrowserDriverFactory` class responsible for creating WebDriver instances.
+     * - The web driver comes from DriverPool, which reuses open browsers in TestDaemon and creates new ones otherwise.
+     * - The web driver is kept in the InvocationContext of the current thread, so parallel invocations each get their own.
+     * - Driver acquisition and window maximize are recorded as separate phases in PhaseTimings.
      * - It's important that the web driver and browser are correctly initialized and configured, as they are crucial for the execution of web-based tests.
      * - The information extracted from the TestNG context (suite name, test name, method name) can be used for detailed logging or custom reporting.
      */
@@ -29,9 +33,11 @@ public class BaseTestGui extends BaseTest {
             String testName = ctx.getCurrentXmlTest().getName();
             BrowserDriverFactory factory = new BrowserDriverFactory(browser, log);
 
-            driver = factory.createDriver();
+            WebDriver driver = PhaseTimings.time(PhaseTimings.Phase.DRIVER,
+                    () -> DriverPool.acquire(browser.toLowerCase(), factory::createDriver));
+            InvocationContext.current().setDriver(driver);
 
-            driver.manage().window().maximize();
+            PhaseTimings.time(PhaseTimings.Phase.MAXIMIZE, () -> driver.manage().window().maximize());
 
             this.testSuiteName = ctx.getSuite().getName();
             this.testName = testName;
@@ -44,11 +50,12 @@ public class BaseTestGui extends BaseTest {
      * Description:
      * - The method logs the action of closing the driver.
      * - It then calls the `quit` method on the WebDriver instance to close the browser and end the session.
+     *   In TestDaemon the browser is kept open by DriverPool instead, for the next test.
      */
     @AfterMethod(alwaysRun = true)
     public void tearDown() {
         log.info("Close driver");
-        // Close browser
-        driver.quit();
+        // Close browser, or keep it open for the next test when running in TestDaemon
+        PhaseTimings.time(PhaseTimings.Phase.TEARDOWN, () -> DriverPool.release(getDriver()));
     }
 }
@@ -33,6 +33,7 @@ public class BrowserDriverFactory {
 	 * - For each browser type, the method sets the system property for the corresponding WebDriver executable and initializes it.
 	 * - For headless modes, it configures the browser options to run without a UI.
 	 * - If an unknown browser type is specified, it defaults to using Chrome.
+	 * - Driver creation is recorded as a JFR event, and the driver is wrapped to record its commands (see FrameworkEvents).
 	 *
 	 * Output:
 	 * - Returns an instance of `WebDriver` configured for the specified browser.
@@ -40,6 +41,8 @@ public class BrowserDriverFactory {
 	public WebDriver createDriver() {
 		// Create driver
 		log.info("Create driver: " + browser);
+		FrameworkEvents.DriverCreation event = new FrameworkEvents.DriverCreation();
+		event.begin();
 
 		switch (browser) {
 		case "chrome":
@@ -81,7 +84,13 @@ public class BrowserDriverFactory {
 			break;
 		}
 
-		return driver.get();
+		event.end();
+		if (event.shouldCommit()) {
+			event.testMethod = FrameworkEvents.testMethod();
+			event.browser = browser;
+			event.commit();
+		}
+		return FrameworkEvents.recordCommands(driver.get());
 	}
 
 
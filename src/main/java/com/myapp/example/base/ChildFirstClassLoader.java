@@ -0,0 +1,51 @@
+package com.myapp.example.base;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+
+/**
+ * Loads classes from the project's class directories before asking the parent, so TestDaemon picks up recompiled
+ * tests and page objects while libraries (Selenium, TestNG, RestAssured) stay loaded and warm in the parent.
+ * Classes named as shared are always taken from the parent, so their state survives between runs.
+ */
+class ChildFirstClassLoader extends URLClassLoader {
+
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+
+	private final Set<String> sharedClasses;
+
+	ChildFirstClassLoader(URL[] classDirectories, ClassLoader parent, Set<String> sharedClasses) {
+		super(classDirectories, parent);
+		this.sharedClasses = sharedClasses;
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		if (sharedClasses.contains(name)) {
+			return super.loadClass(name, resolve);
+		}
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> loaded = findLoadedClass(name);
+			if (loaded == null) {
+				try {
+					loaded = findClass(name);
+				} catch (ClassNotFoundException e) {
+					return super.loadClass(name, resolve);
+				}
+			}
+			if (resolve) {
+				resolveClass(loaded);
+			}
+			return loaded;
+		}
+	}
+
+	@Override
+	public URL getResource(String name) {
+		URL resource = findResource(name);
+		return resource != null ? resource : super.getResource(name);
+	}
+}
@@ -0,0 +1,306 @@
+package com.myapp.example.base;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Binary, column-oriented copy of a CSV test data file, read through a memory-mapped buffer.
+ *
+ * Description:
+ * - Big CSV files are compiled on first use (or ahead of time with main) into 'csv.compiled.dir'
+ *   (default target/compiled-dataproviders), mirroring the path of the CSV file.
+ * - The compiled file stores modification time and size of its CSV source. When the CSV changes, the compiled
+ *   file is rebuilt on next use.
+ * - Rows are decoded from the mapped file only when TestNG asks for them, nothing is parsed at startup
+ *   and the data is not copied to heap.
+ * - Only files of at least 'csv.compile.minBytes' (default 1 MB) are compiled, with 'csv.compile=true' (default).
+ *   Smaller files, and files that cannot be compiled or mapped, are read from CSV as before.
+ *
+ * File layout (big-endian):
+ *   int magic, int version, long source modification time, long source size, int column count, int row count,
+ *   column names (int length + UTF-8 bytes each), int[row count] number of values in each row,
+ *   then for each column: int[row count + 1] value offsets followed by UTF-8 bytes of all values of the column.
+ */
+public class CompiledDataset {
+
+	private static final Logger log = LogManager.getLogger("CsvDataProviders");
+
+	private static final int MAGIC = 0x44534331; // "DSC1"
+	private static final int VERSION = 1;
+
+	private final MappedByteBuffer buffer;
+	private final CsvSchema schema;
+	private final int rowCount;
+	private final int widthsPosition;
+	private final int[] columnPositions;
+
+	private CompiledDataset(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+		ByteBuffer reader = buffer.duplicate();
+		if (reader.getInt() != MAGIC || reader.getInt() != VERSION) {
+			throw new IllegalStateException("Not a compiled dataset");
+		}
+		reader.getLong();
+		reader.getLong();
+		int columnCount = reader.getInt();
+		this.rowCount = reader.getInt();
+		String[] columns = new String[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			byte[] name = new byte[reader.getInt()];
+			reader.get(name);
+			columns[i] = new String(name, StandardCharsets.UTF_8);
+		}
+		this.schema = new CsvSchema(columns);
+		this.widthsPosition = reader.position();
+		this.columnPositions = new int[columnCount];
+		int position = widthsPosition + 4 * rowCount;
+		for (int i = 0; i < columnCount; i++) {
+			columnPositions[i] = position;
+			int dataLength = reader.getInt(position + 4 * rowCount);
+			position += 4 * (rowCount + 1) + dataLength;
+		}
+	}
+
+	/** True if the given CSV file should be read through its compiled copy */
+	public static boolean isEnabledFor(File csvFile) {
+		return EnvironmentConfig.getBoolean("csv.compile", true)
+				&& csvFile.length() >= EnvironmentConfig.getLong("csv.compile.minBytes", 1024L * 1024);
+	}
+
+	/**
+	 * Opens the compiled copy of the given CSV file, compiling it first if it is missing or out of date.
+	 *
+	 * @return The compiled dataset, or null if it could not be compiled or mapped, in which case the CSV should be read instead.
+	 */
+	public static CompiledDataset open(File csvFile) {
+		Path compiled = getCompiledPath(csvFile);
+		try {
+			if (!isUpToDate(compiled, csvFile)) {
+				compile(csvFile, compiled);
+			}
+			try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+				return new CompiledDataset(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			}
+		} catch (IOException | RuntimeException e) {
+			log.error("Compiled dataset for {} is not available, reading CSV instead: {}", csvFile.getPath(), e.getMessage());
+			return null;
+		}
+	}
+
+	public CsvSchema getSchema() {
+		return schema;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/** Decodes one row from the mapped file */
+	public CsvRow getRow(int index) {
+		ByteBuffer reader = buffer.duplicate();
+		int width = reader.getInt(widthsPosition + 4 * index);
+		String[] values = new String[width];
+		for (int column = 0; column < width; column++) {
+			int offsetsPosition = columnPositions[column];
+			int dataPosition = offsetsPosition + 4 * (rowCount + 1);
+			int start = reader.getInt(offsetsPosition + 4 * index);
+			int end = reader.getInt(offsetsPosition + 4 * (index + 1));
+			byte[] bytes = new byte[end - start];
+			reader.position(dataPosition + start);
+			reader.get(bytes);
+			values[column] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return new CsvRow(schema, values);
+	}
+
+	/** Rows wrapped in Object arrays as expected from a data provider, decoded one at a time */
+	public Iterator<Object[]> rows() {
+		return new Iterator<Object[]>() {
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < rowCount;
+			}
+
+			@Override
+			public Object[] next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return new Object[] { getRow(index++) };
+			}
+		};
+	}
+
+	/** Location of the compiled copy of a CSV file, mirroring its path under 'csv.compiled.dir' */
+	public static Path getCompiledPath(File csvFile) {
+		Path compiledDir = Paths.get(EnvironmentConfig.getProperty("csv.compiled.dir", "target/compiled-dataproviders"));
+		Path source = csvFile.toPath().toAbsolutePath().normalize();
+		Path workingDir = Paths.get("").toAbsolutePath();
+		Path relative = source.startsWith(workingDir) ? workingDir.relativize(source)
+				: Paths.get(Integer.toHexString(source.getParent().toString().hashCode())).resolve(source.getFileName());
+		return compiledDir.resolve(relative.toString() + ".bin");
+	}
+
+	private static boolean isUpToDate(Path compiled, File csvFile) throws IOException {
+		if (!Files.exists(compiled)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(24);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read the whole header
+			}
+			header.flip();
+			return header.remaining() == 24
+					&& header.getInt() == MAGIC
+					&& header.getInt() == VERSION
+					&& header.getLong() == csvFile.lastModified()
+					&& header.getLong() == csvFile.length();
+		}
+	}
+
+	/**
+	 * Compiles a CSV file into the binary format.
+	 * Values of each column are spooled to a temporary file, so memory use is limited to the value offsets.
+	 * The result is written to a temporary file and moved in place, so readers never see a partial file.
+	 */
+	public static void compile(File csvFile, Path compiled) throws IOException {
+		long started = System.currentTimeMillis();
+		long lastModified = csvFile.lastModified();
+		long size = csvFile.length();
+		Files.createDirectories(compiled.getParent());
+		Path workDir = Files.createTempDirectory(compiled.getParent(), "compile");
+		try {
+			CsvRowIterator iterator = new CsvRowIterator(csvFile);
+			CsvSchema schema = iterator.getSchema();
+			int columnCount = schema.size();
+			DataOutputStream[] columnData = new DataOutputStream[columnCount];
+			IntList[] offsets = new IntList[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				columnData[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(workDir.resolve(i + ".col"))));
+				offsets[i] = new IntList();
+				offsets[i].add(0);
+			}
+			IntList widths = new IntList();
+			try {
+				while (iterator.hasNext()) {
+					CsvRow row = (CsvRow) iterator.next()[0];
+					int width = row.width();
+					widths.add(width);
+					for (int i = 0; i < columnCount; i++) {
+						if (i < width) {
+							// By position, so every copy of a repeated header keeps its own value
+							columnData[i].write(row.getValue(i).getBytes(StandardCharsets.UTF_8));
+						}
+						offsets[i].add(columnData[i].size());
+					}
+				}
+			} finally {
+				for (OutputStream output : columnData) {
+					output.close();
+				}
+			}
+
+			Path temporary = workDir.resolve("dataset.bin");
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(lastModified);
+				output.writeLong(size);
+				output.writeInt(columnCount);
+				output.writeInt(widths.size());
+				for (int i = 0; i < columnCount; i++) {
+					byte[] name = schema.getColumn(i).getBytes(StandardCharsets.UTF_8);
+					output.writeInt(name.length);
+					output.write(name);
+				}
+				widths.writeTo(output);
+				for (int i = 0; i < columnCount; i++) {
+					offsets[i].writeTo(output);
+					Files.copy(workDir.resolve(i + ".col"), output);
+				}
+			}
+			if (Files.size(temporary) > Integer.MAX_VALUE) {
+				throw new IOException("Compiled dataset is larger than 2 GB and cannot be mapped");
+			}
+			try {
+				Files.move(temporary, compiled, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, compiled, StandardCopyOption.REPLACE_EXISTING);
+			}
+			log.info("Compiled {} ({} rows) into {} in {} ms", csvFile.getPath(), widths.size(), compiled,
+					(System.currentTimeMillis() - started));
+		} finally {
+			try (Stream<Path> files = Files.walk(workDir)) {
+				for (Path path : files.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+					Files.deleteIfExists(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compiles all CSV files under the given directories ahead of time (default src/test/resources/dataproviders),
+	 * e.g. from a build step: mvn compile exec:java -Dexec.mainClass=com.myapp.example.base.CompiledDataset
+	 */
+	public static void main(String[] args) throws IOException {
+		String[] roots = args.length > 0 ? args : new String[] { "src/test/resources/dataproviders" };
+		for (String root : roots) {
+			try (Stream<Path> files = Files.walk(Paths.get(root))) {
+				for (Path csv : files.filter(path -> path.toString().endsWith(".csv")).collect(Collectors.toList())) {
+					File csvFile = csv.toFile();
+					Path compiled = getCompiledPath(csvFile);
+					if (!isUpToDate(compiled, csvFile)) {
+						compile(csvFile, compiled);
+					}
+				}
+			}
+		}
+	}
+
+	/** Growable list of primitive ints, avoids boxing millions of offsets */
+	private static final class IntList {
+		private int[] values = new int[1024];
+		private int size;
+
+		private void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		private int size() {
+			return size;
+		}
+
+		private void writeTo(DataOutputStream output) throws IOException {
+			for (int i = 0; i < size; i++) {
+				output.writeInt(values[i]);
+			}
+		}
+	}
+}
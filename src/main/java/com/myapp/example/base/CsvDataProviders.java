@@ -1,23 +1,17 @@
 package com.myapp.example.base;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.testng.annotations.DataProvider;
 
-import com.opencsv.CSVReader;
-
-import static org.apache.commons.lang3.StringUtils.split;
-
 public class CsvDataProviders {
+	private static final Logger log = LogManager.getLogger("CsvDataProviders");
+
 	/**
 	 * Provides test data by reading CSV files. This method is a data provider for TestNG tests.
 	 * It dynamically reads a CSV file corresponding to a test method and returns the test data.
@@ -31,49 +25,98 @@ public class CsvDataProviders {
 	 *
 	 * Description:
 	 * - The method constructs the path to the CSV file based on the test method's details.
-	 * - It reads the CSV file and converts each row into a map where the keys are the column headers,
-	 *   and values are the corresponding entries in the row.
-	 * - Each map is then added to a list, which is converted into an iterator and returned.
+	 * - Each row is converted into a map, where the keys are the column headers and values are the corresponding entries in the row.
+	 * - Parsed rows are shared through CsvDatasetCache, so a file used by several methods or runs of the suite is parsed once.
+	 *   Files bigger than the cache limit are streamed lazily by CsvRowIterator instead, so memory use does not grow with them.
+	 * - Big files (see 'csv.compile.minBytes') are read from their binary CompiledDataset copy, which is built on first use
+	 *   and rebuilt when the CSV changes. If the compiled copy cannot be used, the CSV is read as above.
+	 * - With 'shard.index' and 'shard.count' set, only rows of that shard are returned (see DataShard).
+	 * - With 'rerun.mode=failedOnly', only rows that failed in the previous run are returned (see HistoryMethodInterceptor).
 	 *
 	 * Notes:
 	 * - The CSV file's path is constructed using the test method's class name and the method name, assuming a specific directory structure.
-	 * - The method handles FileNotFoundException and IOException, throwing a RuntimeException if any file reading issues occur.
+	 * - A missing or unreadable file results in a RuntimeException. The file is closed once all rows are read or reading fails.
 	 * - The method assumes CSV files are located in 'src/test/resources/dataproviders'.
 	 * - It is important that the CSV file's format matches the expected structure (first row as headers, subsequent rows as data).
 	 */
 	@DataProvider(name = "csvReader")
 	public static Iterator<Object[]> csvReader(Method method) {
-		List<Object[]> list = new ArrayList<Object[]>();
+		File file = getDataFile(method);
+		return filterFailedRows(method, DataShard.fromConfig().filter(file.getPath(), readRows(file)));
+	}
+	/**
+	 * Same test data as csvReader, but TestNG runs the rows in parallel on its data provider thread pool.
+	 *
+	 * Notes:
+	 * - The pool size is the TestNG 'dataproviderthreadcount' setting, passed by surefire from the property of the same name
+	 *   (e.g. mvn test -Ddataproviderthreadcount=8).
+	 * - Tests using this provider must not keep row state in fields. Each row's data and web driver are
+	 *   available from InvocationContext.current() on the invocation's own thread.
+	 */
+	@DataProvider(name = "csvReaderParallel", parallel = true)
+	public static Iterator<Object[]> csvReaderParallel(Method method) {
+		return csvReader(method);
+	}
+	/**
+	 * With 'rerun.mode=failedOnly', passes only rows that failed in the last run of the method.
+	 * Methods without recorded failed rows, e.g. prerequisites of failed methods, get all rows.
+	 */
+	private static Iterator<Object[]> filterFailedRows(Method method, Iterator<Object[]> rows) {
+		if (!HistoryMethodInterceptor.FAILED_ONLY.equals(HistoryMethodInterceptor.getRerunMode())) {
+			return rows;
+		}
+		String qualifiedName = method.getDeclaringClass().getName() + "." + method.getName();
+		Set<String> failedRows = TestHistoryStore.getInstance().getFailedRows(qualifiedName);
+		if (failedRows.isEmpty()) {
+			return rows;
+		}
+		log.info("Rerunning {} failed rows of {}", failedRows.size(), qualifiedName);
+		return new FilteredRows(rows, row -> failedRows.contains(TestHistoryStore.rowKey(new Object[] { row })));
+	}
+	/**
+	 * Reads all rows of the file from its compiled copy, the dataset cache or the CSV itself.
+	 * Loading is recorded as a JFR event, see FrameworkEvents.
+	 */
+	private static Iterator<Object[]> readRows(File file) {
+		FrameworkEvents.CsvLoad event = new FrameworkEvents.CsvLoad();
+		event.begin();
+		if (CompiledDataset.isEnabledFor(file)) {
+			CompiledDataset dataset = CompiledDataset.open(file);
+			if (dataset != null) {
+				log.info("Test data from compiled {}, {} rows", file.getPath(), dataset.getRowCount());
+				commitCsvLoad(event, file, "compiled");
+				return dataset.rows();
+			}
+		}
+		CsvDatasetCache cache = CsvDatasetCache.getInstance();
+		Iterator<Object[]> rows = cache.rows(file);
+		log.info("Test data from {}. Dataset cache {}", file.getPath(), cache.getStats());
+		commitCsvLoad(event, file, "csv");
+		return rows;
+	}
+
+	private static void commitCsvLoad(FrameworkEvents.CsvLoad event, File file, String source) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.testMethod = FrameworkEvents.testMethod();
+			event.file = file.getPath();
+			event.source = source;
+			event.bytes = file.length();
+			event.commit();
+		}
+	}
+	/**
+	 * Builds the path of the CSV file holding test data for the given test method:
+	 * src/test/resources/dataproviders/[last package segment]/[test class]/[test method].csv
+	 */
+	public static File getDataFile(Method method) {
 		String fullTestingTypePath = method.getDeclaringClass().getPackage().getName();
-		System.out.println(fullTestingTypePath);
 		String testingType = getLastSegmentOfPackageName(fullTestingTypePath);
-		System.out.println(testingType);
 		String pathname = "src" + File.separator + "test" + File.separator + "resources" + File.separator
 				+ "dataproviders" + File.separator + testingType + File.separator
 				+ method.getDeclaringClass().getSimpleName() + File.separator
 				+ method.getName() + ".csv";
-		File file = new File(pathname);
-		try {
-			CSVReader reader = new CSVReader(new FileReader(file));
-			String[] keys = reader.readNext();
-			if (keys != null) {
-				String[] dataParts;
-				while ((dataParts = reader.readNext()) != null) {
-					Map<String, String> testData = new HashMap<String, String>();
-					for (int i = 0; i < keys.length; i++) {
-						testData.put(keys[i], dataParts[i]);
-					}
-					list.add(new Object[] { testData });
-				}
-			}
-			reader.close();
-		} catch (FileNotFoundException e) {
-			throw new RuntimeException("File " + pathname + " was not found.\n" + e.getStackTrace().toString());
-		} catch (IOException e) {
-			throw new RuntimeException("Could not read " + pathname + " file.\n" + e.getStackTrace().toString());
-		}
-
-		return list.iterator();
+		return new File(pathname);
 	}
 	/**
 	 * Extracts the last segment from a fully qualified package name.
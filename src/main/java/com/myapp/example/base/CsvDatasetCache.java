@@ -0,0 +1,226 @@
+package com.myapp.example.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of parsed CSV test data, so the same file is parsed once even when it is used by several
+ * test methods, retries or several <test> blocks of a suite.
+ *
+ * Description:
+ * - Datasets are keyed by canonical file path and validated against the file's modification time and size,
+ *   so an edited file is parsed again.
+ * - Total estimated size of cached datasets is capped by 'csv.cache.maxBytes' (default 64 MB). Least recently
+ *   used datasets are evicted first.
+ * - Datasets that would not fit under the cap are not cached but streamed with CsvRowIterator. Parsed rows take
+ *   more memory than the file, so files bigger than half the cap are streamed right away. Other files are parsed
+ *   only until their estimated size passes the cap, such file versions are remembered and streamed from then on.
+ * - Concurrent data providers asking for the same file wait for a single parse instead of parsing it in parallel.
+ * - Cached rows are read-only CsvRow maps, since the same row objects are handed to every test using the file.
+ */
+public class CsvDatasetCache {
+
+	// Rough overhead of CsvRow with its value array and of each String value, used for size estimation
+	private static final int ROW_OVERHEAD_BYTES = 48;
+	private static final int VALUE_OVERHEAD_BYTES = 48;
+
+	private static CsvDatasetCache instance;
+
+	private final long maxBytes;
+	private long currentBytes;
+	// Access-ordered, so iteration starts with the least recently used dataset
+	private final LinkedHashMap<String, Dataset> datasets = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, FutureTask<Dataset>> loading = new HashMap<>();
+	// Versions of files whose parsed rows passed the cap, see load
+	private final Set<String> oversized = new HashSet<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong bypassed = new AtomicLong();
+
+	public CsvDatasetCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/** Cache shared by all data providers in this JVM */
+	public static synchronized CsvDatasetCache getInstance() {
+		if (instance == null) {
+			instance = new CsvDatasetCache(EnvironmentConfig.getLong("csv.cache.maxBytes", 64L * 1024 * 1024));
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the rows of the given CSV file, each wrapped in an Object array as expected from a data provider.
+	 * Rows come from the cache when the file did not change since it was parsed.
+	 */
+	public Iterator<Object[]> rows(File file) {
+		// Each character is at least two bytes as a Java string, before any per-value and per-row overhead
+		Dataset dataset = file.length() > maxBytes / 2 ? null : get(file);
+		if (dataset == null) {
+			bypassed.incrementAndGet();
+			return new CsvRowIterator(file);
+		}
+		Iterator<Map<String, String>> iterator = dataset.rows.iterator();
+		return new Iterator<Object[]>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Object[] next() {
+				return new Object[] { iterator.next() };
+			}
+		};
+	}
+
+	/** Cache counters, suitable for logging */
+	public String getStats() {
+		synchronized (this) {
+			return "hits: " + hits.get() + ", misses: " + misses.get() + ", evictions: " + evictions.get()
+					+ ", streamed without caching: " + bypassed.get() + ", cached datasets: " + datasets.size()
+					+ ", cached bytes: " + currentBytes + "/" + maxBytes;
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/** Parsed dataset of the file, null if it would not fit under the cap */
+	private Dataset get(File file) {
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (IOException e) {
+			path = file.getAbsolutePath();
+		}
+		long lastModified = file.lastModified();
+		long size = file.length();
+		String version = path + "|" + lastModified + "|" + size;
+
+		FutureTask<Dataset> task;
+		boolean owner = false;
+		synchronized (this) {
+			Dataset cached = datasets.get(path);
+			if (cached != null && cached.lastModified == lastModified && cached.size == size) {
+				hits.incrementAndGet();
+				return cached;
+			}
+			if (oversized.contains(version)) {
+				return null;
+			}
+			task = loading.get(version);
+			if (task == null) {
+				task = new FutureTask<>(() -> load(file, lastModified, size));
+				loading.put(version, task);
+				owner = true;
+				misses.incrementAndGet();
+			} else {
+				// Another provider is parsing the same file right now, its result is shared
+				hits.incrementAndGet();
+			}
+		}
+		if (owner) {
+			task.run();
+		}
+		try {
+			Dataset dataset = task.get();
+			if (owner) {
+				store(path, version, dataset);
+			}
+			return dataset;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while reading " + file.getPath() + " file.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+		} finally {
+			if (owner) {
+				synchronized (this) {
+					loading.remove(version);
+				}
+			}
+		}
+	}
+
+	private synchronized void store(String path, String version, Dataset dataset) {
+		if (dataset == null) {
+			oversized.add(version);
+			return;
+		}
+		Dataset previous = datasets.put(path, dataset);
+		if (previous != null) {
+			currentBytes -= previous.estimatedBytes;
+		}
+		currentBytes += dataset.estimatedBytes;
+		Iterator<Map.Entry<String, Dataset>> eldest = datasets.entrySet().iterator();
+		while (currentBytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<String, Dataset> entry = eldest.next();
+			if (entry.getValue() == dataset) {
+				continue;
+			}
+			currentBytes -= entry.getValue().estimatedBytes;
+			eldest.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Parses all rows of the file, or returns null as soon as their estimated size passes the cap.
+	 * Rows parsed up to then are dropped, the caller streams the file instead.
+	 */
+	private Dataset load(File file, long lastModified, long size) {
+		List<Map<String, String>> rows = new ArrayList<>();
+		long estimatedBytes = 0;
+		CsvRowIterator iterator = new CsvRowIterator(file);
+		while (iterator.hasNext()) {
+			CsvRow row = (CsvRow) iterator.next()[0];
+			estimatedBytes += ROW_OVERHEAD_BYTES;
+			// By position, copies of a repeated header are held in memory too
+			for (int i = 0; i < row.width(); i++) {
+				estimatedBytes += VALUE_OVERHEAD_BYTES + 2L * row.getValue(i).length();
+			}
+			if (estimatedBytes > maxBytes) {
+				iterator.close();
+				return null;
+			}
+			rows.add(row);
+		}
+		return new Dataset(Collections.unmodifiableList(rows), lastModified, size, estimatedBytes);
+	}
+
+	/** Parsed rows of one file together with the file version they were parsed from */
+	private static final class Dataset {
+		private final List<Map<String, String>> rows;
+		private final long lastModified;
+		private final long size;
+		private final long estimatedBytes;
+
+		private Dataset(List<Map<String, String>> rows, long lastModified, long size, long estimatedBytes) {
+			this.rows = rows;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.estimatedBytes = estimatedBytes;
+		}
+	}
+}
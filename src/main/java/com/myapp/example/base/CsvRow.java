@@ -0,0 +1,179 @@
+package com.myapp.example.base;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * One row of CSV test data. Values are kept in a flat array and looked up through the CsvSchema shared by all rows of the file.
+ *
+ * Description:
+ * - Implements Map<String, String>, so tests keep their Map<String, String> parameter, e.g.
+ *   gigatron_006_actionCheck(Map<String, String> testData).
+ * - The map is read-only, since the same row can be handed to several tests through CsvDatasetCache.
+ * - A repeated header is one key holding the value of its last column, the other copies are only read by position.
+ * - Typed getters parse a value on first use and keep the parsed value for next calls.
+ *   Parsed values are kept without locking: two threads may both parse the same value, but always get the same result.
+ */
+public class CsvRow extends AbstractMap<String, String> {
+
+	private final CsvSchema schema;
+	private final String[] values;
+	private Object[] parsedValues;
+
+	/**
+	 * @param schema Columns of the file the row comes from.
+	 * @param values Values of the row. Missing trailing values are treated as absent keys, extra values are ignored.
+	 */
+	public CsvRow(CsvSchema schema, String[] values) {
+		this.schema = schema;
+		this.values = values;
+	}
+
+	@Override
+	public String get(Object key) {
+		int index = schema.indexOf(key);
+		return index >= 0 && index < values.length ? values[index] : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int index = schema.indexOf(key);
+		return index >= 0 && index < values.length;
+	}
+
+	/** Columns with a value, a repeated header counts once, as get(key) returns only its last copy */
+	@Override
+	public int size() {
+		int width = width();
+		int size = 0;
+		for (int i = 0; i < width; i++) {
+			if (!schema.isShadowed(i)) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private int index = skipShadowed(0);
+
+					@Override
+					public boolean hasNext() {
+						return index < width();
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						int current = index;
+						index = skipShadowed(index + 1);
+						return new SimpleImmutableEntry<>(schema.getColumn(current), values[current]);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return CsvRow.this.size();
+			}
+		};
+	}
+
+	public CsvSchema getSchema() {
+		return schema;
+	}
+
+	/** Number of columns the row has values for, counting every copy of a repeated header */
+	public int width() {
+		return Math.min(schema.size(), values.length);
+	}
+
+	/** Value at the given column position, also for copies of a repeated header that get(key) does not return */
+	public String getValue(int index) {
+		return values[index];
+	}
+
+	/** Value of an integer column, parsed once */
+	public int getInt(String column) {
+		Object parsed = getParsed(column);
+		if (!(parsed instanceof Integer)) {
+			parsed = Integer.parseInt(getRequired(column).trim());
+			setParsed(column, parsed);
+		}
+		return (Integer) parsed;
+	}
+
+	/** Value of an ISO date column (yyyy-MM-dd), parsed once */
+	public LocalDate getDate(String column) {
+		return getDate(column, DateTimeFormatter.ISO_LOCAL_DATE);
+	}
+
+	/** Value of a date column in the given format, e.g. DateTimeFormatter.ofPattern("dd.MM.yyyy"), parsed once */
+	public LocalDate getDate(String column, DateTimeFormatter formatter) {
+		Object parsed = getParsed(column);
+		if (!(parsed instanceof LocalDate)) {
+			parsed = LocalDate.parse(getRequired(column).trim(), formatter);
+			setParsed(column, parsed);
+		}
+		return (LocalDate) parsed;
+	}
+
+	/** Value of a URL column, parsed once */
+	public URL getUrl(String column) {
+		Object parsed = getParsed(column);
+		if (!(parsed instanceof URL)) {
+			try {
+				parsed = new URL(getRequired(column).trim());
+			} catch (MalformedURLException e) {
+				throw new IllegalArgumentException("Column " + column + " does not hold a valid URL: " + get(column), e);
+			}
+			setParsed(column, parsed);
+		}
+		return (URL) parsed;
+	}
+
+	/** First position from the given one whose header is not repeated later, entries are not reported twice */
+	private int skipShadowed(int index) {
+		int width = width();
+		while (index < width && schema.isShadowed(index)) {
+			index++;
+		}
+		return index;
+	}
+
+	private String getRequired(String column) {
+		String value = get(column);
+		if (value == null) {
+			throw new IllegalArgumentException("Column " + column + " is missing in test data");
+		}
+		return value;
+	}
+
+	private Object getParsed(String column) {
+		Object[] parsed = parsedValues;
+		int index = schema.indexOf(column);
+		return parsed != null && index >= 0 ? parsed[index] : null;
+	}
+
+	private void setParsed(String column, Object value) {
+		if (parsedValues == null) {
+			parsedValues = new Object[schema.size()];
+		}
+		parsedValues[schema.indexOf(column)] = value;
+	}
+}
@@ -0,0 +1,97 @@
+package com.myapp.example.base;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.opencsv.CSVReader;
+
+/**
+ * Iterator over the rows of a CSV file that reads one row at a time, so only the current row is kept in memory.
+ *
+ * Description:
+ * - The file is opened and the header row is read when the iterator is created, so a missing file fails the
+ *   data provider right away, same as before.
+ * - Each following row is read only when TestNG asks for the next set of test data. Rows are CsvRow maps
+ *   sharing one CsvSchema built from the header.
+ * - The file is closed as soon as the last row is read or reading fails, or when close is called.
+ */
+public class CsvRowIterator implements Iterator<Object[]> {
+
+	private final String pathname;
+	private final CSVReader reader;
+	private final CsvSchema schema;
+	private Object[] next;
+	private boolean closed;
+
+	public CsvRowIterator(File file) {
+		this.pathname = file.getPath();
+		try {
+			this.reader = new CSVReader(new FileReader(file));
+		} catch (FileNotFoundException e) {
+			throw new RuntimeException("File " + pathname + " was not found.", e);
+		}
+		String[] keys;
+		try {
+			keys = reader.readNext();
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException("Could not read " + pathname + " file.", e);
+		}
+		if (keys == null) {
+			close();
+			keys = new String[0];
+		}
+		this.schema = new CsvSchema(keys);
+	}
+
+	/** Columns read from the header of the file, shared by all rows */
+	public CsvSchema getSchema() {
+		return schema;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !closed) {
+			next = readRow();
+		}
+		return next != null;
+	}
+
+	@Override
+	public Object[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more rows in " + pathname);
+		}
+		Object[] row = next;
+		next = null;
+		return row;
+	}
+
+	private Object[] readRow() {
+		try {
+			String[] dataParts = reader.readNext();
+			if (dataParts == null) {
+				close();
+				return null;
+			}
+			return new Object[] { new CsvRow(schema, dataParts) };
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException("Could not read " + pathname + " file.", e);
+		}
+	}
+
+	/** Closes the file before all rows were read, hasNext returns false from then on */
+	void close() {
+		closed = true;
+		try {
+			reader.close();
+		} catch (IOException e) {
+			// Nothing more to read from this file anyway
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.myapp.example.base;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column names of a CSV file and their positions, shared by all rows read from that file.
+ * Header strings are hashed once per file instead of once per row.
+ */
+public class CsvSchema {
+
+	private final String[] columns;
+	private final Map<String, Integer> indexes;
+
+	public CsvSchema(String[] columns) {
+		this.columns = columns.clone();
+		Map<String, Integer> positions = new HashMap<>(columns.length * 2);
+		for (int i = 0; i < columns.length; i++) {
+			// Last column wins when a header is repeated, as when the values were put into a HashMap one by one
+			positions.put(columns[i], i);
+		}
+		this.indexes = positions;
+	}
+
+	/** Position of the given column, or -1 if the file has no such column */
+	public int indexOf(Object column) {
+		Integer index = indexes.get(column);
+		return index != null ? index : -1;
+	}
+
+	public String getColumn(int index) {
+		return columns[index];
+	}
+
+	/** True if a later column repeats the header of the given position, so the value there is not visible by name */
+	public boolean isShadowed(int index) {
+		return indexes.get(columns[index]) != index;
+	}
+
+	public int size() {
+		return columns.length;
+	}
+
+	public List<String> getColumns() {
+		return Collections.unmodifiableList(Arrays.asList(columns));
+	}
+}
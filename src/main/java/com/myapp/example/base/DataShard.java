@@ -0,0 +1,118 @@
+package com.myapp.example.base;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Deterministic split of data provider rows between several test runs, so each agent runs a disjoint slice of the data.
+ *
+ * Description:
+ * - Configured by 'shard.index' (0 based) and 'shard.count', e.g. -Dshard.index=1 -Dshard.count=3 or
+ *   SHARD_INDEX / SHARD_COUNT environment variables. Without them, or with 'shard.count' 1, all rows are used.
+ * - A row belongs to the shard given by a 64-bit FNV-1a hash of its key modulo the shard count. The key is the value of
+ *   the 'shard.key' column, or all values of the row when the column is not set or missing.
+ * - Since a row's shard depends only on its own content, adding or removing rows never moves other rows between shards,
+ *   and every agent computes the same split without coordination.
+ * - Test methods without sharded rows run on one shard only, see ShardMethodInterceptor.
+ * - Results of all shards are combined with TestResultsMerger.
+ */
+public class DataShard {
+
+	private static final Logger log = LogManager.getLogger("CsvDataProviders");
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// Shard set for the work unit currently running in this JVM, see DistributedWorker
+	private static volatile DataShard override;
+
+	private final int index;
+	private final int count;
+	private final String keyColumn;
+
+	public DataShard(int index, int count, String keyColumn) {
+		if (count < 1 || index < 0 || index >= count) {
+			throw new IllegalArgumentException("Invalid shard " + index + " of " + count
+					+ ", shard.index must be between 0 and shard.count - 1");
+		}
+		this.index = index;
+		this.count = count;
+		this.keyColumn = keyColumn;
+	}
+
+	/** Shard of this JVM, from 'shard.index', 'shard.count' and 'shard.key', unless another one is in use */
+	public static DataShard fromConfig() {
+		DataShard shard = override;
+		if (shard != null) {
+			return shard;
+		}
+		return new DataShard(EnvironmentConfig.getInt("shard.index", 0), EnvironmentConfig.getInt("shard.count", 1),
+				EnvironmentConfig.getProperty("shard.key", null));
+	}
+
+	/**
+	 * Uses the given shard instead of the configured one, e.g. for a work unit holding only some rows of a class.
+	 *
+	 * @param shard Shard to use, or null to go back to the configured shard.
+	 */
+	public static void use(DataShard shard) {
+		override = shard;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public boolean isSharded() {
+		return count > 1;
+	}
+
+	/** True if the given data provider row belongs to this shard */
+	public boolean contains(Map<String, String> row) {
+		return !isSharded() || shardOf(row) == index;
+	}
+
+	/** Shard the given row belongs to, between 0 and shard count - 1 */
+	public int shardOf(Map<String, String> row) {
+		long hash = FNV_OFFSET_BASIS;
+		if (keyColumn != null && row.containsKey(keyColumn)) {
+			hash = hash(hash, row.get(keyColumn));
+		} else {
+			for (String value : row.values()) {
+				hash = hash(hash, value);
+				// Separator, so "ab","c" and "a","bc" are different keys
+				hash = (hash ^ 0xff) * FNV_PRIME;
+			}
+		}
+		return (int) Long.remainderUnsigned(hash, count);
+	}
+
+	/** Shard the given key belongs to, e.g. a method name, hashed the same way as a 'shard.key' column value */
+	public int shardOf(String key) {
+		return (int) Long.remainderUnsigned(hash(FNV_OFFSET_BASIS, key), count);
+	}
+
+	/** Wraps data provider rows, passing only rows of this shard */
+	public Iterator<Object[]> filter(String source, Iterator<Object[]> rows) {
+		if (!isSharded()) {
+			return rows;
+		}
+		log.info("Using shard {} of {} for {}", index, count, source);
+		return new FilteredRows(rows, this::contains);
+	}
+
+	private static long hash(long hash, String value) {
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+		}
+		return hash;
+	}
+}
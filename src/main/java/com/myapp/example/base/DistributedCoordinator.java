@@ -0,0 +1,348 @@
+package com.myapp.example.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import org.testng.xml.internal.Parser;
+
+/**
+ * Runs a suite on several worker JVMs, so browsers of one run are spread over several heaps instead of one.
+ *
+ * Description:
+ * - The suite is split into work units: one per test class of every <test>. Classes without dependent methods and with
+ *   a data provider can be split further into 'distributed.rowShards' units of rows (see DataShard).
+ * - Units wait in one shared queue, longest first by TestHistoryStore. Idle workers pull the next unit, so a worker
+ *   that finishes early takes work that would otherwise wait for a busy one.
+ * - 'distributed.workers' worker JVMs (default 2) are started on this machine with the same classpath and system properties.
+ *   By default the coordinator listens on loopback only. With 'distributed.bind' set to another address, workers on
+ *   other hosts can connect too (see DistributedWorker).
+ * - Invocation results stream back and are logged while units run. They are recorded in TestHistoryStore and RunHistory
+ *   once their unit has finished, so a unit that is handed out again after its worker died is recorded only once.
+ *   The testng-results.xml of every unit is merged by TestResultsMerger into one report in 'distributed.dir'.
+ * - A unit whose worker dies is handed out again once, then counted as failed.
+ * - With 'updateTestRail=true', one TestRail run is created here and shared by all workers through 'testRail.runId'.
+ *
+ * Usage:
+ * - mvn test-compile exec:java -Dexec.mainClass=com.myapp.example.base.DistributedCoordinator -Dexec.classpathScope=test
+ *   -Dexec.args="src/test/resources/TestSuites/FullSuite.xml" -Ddistributed.workers=4
+ */
+public class DistributedCoordinator {
+
+	private static final Logger log = LogManager.getLogger("Distributed");
+
+	private static final int MAX_ATTEMPTS = 2;
+
+	private final BlockingDeque<WorkUnit> queue = new LinkedBlockingDeque<>();
+	private final AtomicInteger remaining = new AtomicInteger();
+	private final AtomicInteger connectedWorkers = new AtomicInteger();
+	private final AtomicInteger lostUnits = new AtomicInteger();
+	private final AtomicInteger failedInvocations = new AtomicInteger();
+	private final List<Process> processes = new ArrayList<>();
+	private final Path resultsDirectory;
+
+	public DistributedCoordinator(Path resultsDirectory) {
+		this.resultsDirectory = resultsDirectory;
+	}
+
+	/**
+	 * Runs the given suite files on worker JVMs and merges their reports.
+	 *
+	 * @return true if all units finished and no invocation failed.
+	 */
+	public boolean run(List<String> suiteFiles) throws IOException, InterruptedException {
+		List<WorkUnit> units = split(suiteFiles);
+		units.sort(Comparator.comparingLong(WorkUnit::getExpectedMillis).reversed());
+		queue.addAll(units);
+		remaining.set(units.size());
+		Files.createDirectories(resultsDirectory.resolve("units"));
+
+		InetAddress bindAddress = InetAddress.getByName(EnvironmentConfig.getProperty("distributed.bind", "127.0.0.1"));
+		try (ServerSocket server = new ServerSocket(EnvironmentConfig.getInt("distributed.port", 0), 50, bindAddress)) {
+			log.info("Coordinator listening on {} with {} work units", server.getLocalSocketAddress(), units.size());
+			Thread acceptor = new Thread(() -> accept(server), "distributed-acceptor");
+			acceptor.setDaemon(true);
+			acceptor.start();
+
+			List<String> workerArguments = getWorkerArguments();
+			int workers = EnvironmentConfig.getInt("distributed.workers", 2);
+			for (int i = 1; i <= workers; i++) {
+				processes.add(startWorker("worker-" + i, server.getInetAddress(), server.getLocalPort(), workerArguments));
+			}
+			waitForUnits();
+		} finally {
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+
+		List<Path> resultFiles = TestResultsMerger.findResultFiles(Arrays.asList(resultsDirectory.resolve("units").toString()));
+		if (!resultFiles.isEmpty()) {
+			TestResultsMerger.write(TestResultsMerger.merge(resultFiles), resultsDirectory.resolve("testng-results.xml"));
+		}
+		TestHistoryStore.getInstance().save();
+		RunHistory.getInstance().save();
+		DurationRegressionReport.check(RunHistory.getInstance(), null);
+		log.info("Distributed run finished. Failed invocations: {}, lost units: {}, report: {}", failedInvocations.get(),
+				lostUnits.get(), resultsDirectory.resolve("testng-results.xml"));
+		return failedInvocations.get() == 0 && lostUnits.get() == 0;
+	}
+
+	/** Splits suites into units of one class, or of one row shard of a class */
+	private List<WorkUnit> split(List<String> suiteFiles) throws IOException {
+		int rowShards = Math.max(1, EnvironmentConfig.getInt("distributed.rowShards", 1));
+		TestHistoryStore history = TestHistoryStore.getInstance();
+		List<WorkUnit> units = new ArrayList<>();
+		for (String suiteFile : suiteFiles) {
+			for (XmlSuite suite : new Parser(suiteFile).parseToList()) {
+				for (XmlTest test : suite.getTests()) {
+					for (XmlClass xmlClass : test.getXmlClasses()) {
+						List<String> includes = new ArrayList<>();
+						for (XmlInclude include : xmlClass.getIncludedMethods()) {
+							includes.add(include.getName());
+						}
+						Class<?> testClass = xmlClass.getSupportClass();
+						long expectedMillis = getExpectedMillis(testClass, history);
+						int shards = rowShards > 1 && canSplitRows(testClass) ? rowShards : 1;
+						for (int shard = 0; shard < shards; shard++) {
+							units.add(new WorkUnit(units.size() + 1, suite.getName(), test.getName(), xmlClass.getName(), includes,
+									new HashMap<>(test.getAllParameters()), shard, shards, expectedMillis / shards));
+						}
+					}
+				}
+			}
+		}
+		return units;
+	}
+
+	/** Rows can be split when the class uses a data provider and no method depends on another one */
+	private static boolean canSplitRows(Class<?> testClass) {
+		boolean dataProvider = false;
+		for (Method method : testClass.getMethods()) {
+			Test test = method.getAnnotation(Test.class);
+			if (test == null) {
+				continue;
+			}
+			if (test.dependsOnMethods().length > 0 || test.dependsOnGroups().length > 0) {
+				return false;
+			}
+			dataProvider |= !test.dataProvider().isEmpty();
+		}
+		return dataProvider;
+	}
+
+	private static long getExpectedMillis(Class<?> testClass, TestHistoryStore history) {
+		long total = 0;
+		for (Method method : testClass.getMethods()) {
+			if (method.isAnnotationPresent(Test.class)) {
+				long duration = history.getDuration(testClass.getName() + "." + method.getName());
+				total += duration >= 0 ? duration : history.getAverageDuration();
+			}
+		}
+		return total;
+	}
+
+	private void accept(ServerSocket server) {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				Thread handler = new Thread(() -> serve(socket), "distributed-worker-" + socket.getPort());
+				handler.setDaemon(true);
+				handler.start();
+			} catch (IOException e) {
+				if (!server.isClosed()) {
+					log.error("Error accepting worker: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	/** Hands out units to one worker and collects its events and results */
+	private void serve(Socket socket) {
+		WorkUnit assigned = null;
+		// Events of the assigned unit, recorded when its result arrives and dropped if the unit is lost
+		List<JSONObject> events = new ArrayList<>();
+		String worker = String.valueOf(socket.getRemoteSocketAddress());
+		connectedWorkers.incrementAndGet();
+		try (WorkerConnection connection = new WorkerConnection(socket)) {
+			JSONObject message;
+			while ((message = connection.receive()) != null) {
+				String type = message.getString("type");
+				if (WorkerConnection.HELLO.equals(type)) {
+					worker = message.getString("worker") + " (" + connection.getRemoteAddress() + ")";
+					log.info("Worker {} connected", worker);
+				} else if (WorkerConnection.NEXT.equals(type)) {
+					assigned = takeUnit();
+					if (assigned == null) {
+						connection.send(WorkerConnection.message(WorkerConnection.DONE));
+						break;
+					}
+					log.info("Unit {} -> {}", assigned, worker);
+					connection.send(WorkerConnection.message(WorkerConnection.UNIT).put("unit", assigned.toJson()));
+				} else if (WorkerConnection.EVENT.equals(type)) {
+					log.info("[{}] {} {} in {} ms", worker, message.getString("method"), message.getString("status"),
+							message.getLong("millis"));
+					events.add(message);
+				} else if (WorkerConnection.RESULT.equals(type)) {
+					saveResult(message.getInt("unit"), message.getString("xml"));
+					for (JSONObject event : events) {
+						recordEvent(event);
+					}
+					events.clear();
+					assigned = null;
+					remaining.decrementAndGet();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			log.error("Connection to worker {} failed: {}", worker, e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			connectedWorkers.decrementAndGet();
+			if (assigned != null) {
+				unitLost(assigned, worker, events.size());
+			}
+		}
+	}
+
+	/** Next unit to run, waiting while units are still running elsewhere and could be handed out again */
+	private WorkUnit takeUnit() throws InterruptedException {
+		while (remaining.get() > 0) {
+			WorkUnit unit = queue.poll(1, TimeUnit.SECONDS);
+			if (unit != null) {
+				unit.nextAttempt();
+				return unit;
+			}
+		}
+		return null;
+	}
+
+	private void unitLost(WorkUnit unit, String worker, int droppedEvents) {
+		if (unit.nextAttempt() <= MAX_ATTEMPTS) {
+			log.error("Worker {} stopped while running unit {}, dropping its {} invocations and handing it out again",
+					worker, unit, droppedEvents);
+			queue.addFirst(unit);
+		} else {
+			log.error("Unit {} was lost on its last attempt", unit);
+			lostUnits.incrementAndGet();
+			remaining.decrementAndGet();
+		}
+	}
+
+	private void recordEvent(JSONObject event) {
+		String method = event.getString("method");
+		String status = event.getString("status");
+		boolean passed = "PASS".equals(status);
+		if (!passed && !"SKIP".equals(status)) {
+			failedInvocations.incrementAndGet();
+		}
+		TestHistoryStore history = TestHistoryStore.getInstance();
+		if (!"SKIP".equals(status)) {
+			history.recordDuration(method, event.getLong("millis"));
+		}
+		Object[] parameters = event.has("row") ? new Object[] { event.getString("row") } : new Object[0];
+		history.recordOutcome(method, parameters, passed);
+		RunHistory.getInstance().record(event.optString("suite"), method, event.optString("row", null), status,
+				event.getLong("millis"), event.optString("environment", null), event.optString("browser", null));
+	}
+
+	private void saveResult(int unitId, String xml) throws IOException {
+		if (xml.isEmpty()) {
+			return;
+		}
+		Path file = resultsDirectory.resolve("units").resolve(String.valueOf(unitId)).resolve("testng-results.xml");
+		Files.createDirectories(file.getParent());
+		Files.write(file, xml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void waitForUnits() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(EnvironmentConfig.getLong("distributed.timeoutMinutes", 120));
+		while (remaining.get() > 0) {
+			if (System.currentTimeMillis() > deadline) {
+				log.error("Distributed run timed out with {} units left", remaining.get());
+				lostUnits.addAndGet(remaining.get());
+				return;
+			}
+			boolean localWorkersAlive = processes.stream().anyMatch(Process::isAlive);
+			if (!processes.isEmpty() && !localWorkersAlive && connectedWorkers.get() == 0) {
+				log.error("All workers stopped with {} units left", remaining.get());
+				lostUnits.addAndGet(remaining.get());
+				return;
+			}
+			Thread.sleep(500);
+		}
+	}
+
+	/** System properties of this JVM are passed to workers, so they run with the same configuration */
+	private List<String> getWorkerArguments() {
+		List<String> arguments = new ArrayList<>();
+		for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if (argument.startsWith("-D") || argument.startsWith("-Xmx")) {
+				arguments.add(argument);
+			}
+		}
+		// Workers report history through events, only the coordinator writes it
+		arguments.add("-Dhistory.save=false");
+		if (EnvironmentConfig.getBoolean("updateTestRail", false) && EnvironmentConfig.getInt("testRail.runId", 0) == 0) {
+			int testRunId = TestRailAPI.createTestRunAndGetId(1, "TestRun_distributed_" + System.currentTimeMillis(),
+					"This is a description of the new test run.");
+			arguments.add("-DtestRail.runId=" + testRunId);
+		}
+		return arguments;
+	}
+
+	private Process startWorker(String name, InetAddress address, int port, List<String> workerArguments) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(workerArguments);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(DistributedWorker.class.getName());
+		command.add(address.isAnyLocalAddress() ? InetAddress.getLoopbackAddress().getHostAddress() : address.getHostAddress());
+		command.add(String.valueOf(port));
+		command.add(name);
+		File logFile = resultsDirectory.resolve(name + ".log").toFile();
+		log.info("Starting {}, output in {}", name, logFile);
+		return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile).start();
+	}
+
+	/**
+	 * Runs the suite files given as arguments on worker JVMs.
+	 * Exits with status 1 if an invocation failed or a unit could not be run.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 0) {
+			System.err.println("Usage: DistributedCoordinator <suite xml>...");
+			System.exit(2);
+		}
+		Path resultsDirectory = Paths.get(EnvironmentConfig.getProperty("distributed.dir", "target/distributed"));
+		boolean passed = new DistributedCoordinator(resultsDirectory).run(Arrays.asList(args));
+		TestRailAPI.close();
+		System.exit(passed ? 0 : 1);
+	}
+}
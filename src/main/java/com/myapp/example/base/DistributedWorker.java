@@ -0,0 +1,139 @@
+package com.myapp.example.base;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * Worker JVM of a distributed run. Pulls work units from DistributedCoordinator until none are left and runs each
+ * of them as a separate TestNG suite.
+ *
+ * Description:
+ * - Started by the coordinator for local workers. On another host it can be started by hand with the coordinator's
+ *   host and port, as long as the coordinator listens on a non-loopback address ('distributed.bind').
+ * - Every finished invocation is streamed back as an event, so the coordinator shows progress and keeps test history.
+ *   The testng-results.xml of every unit is sent back once the unit is finished.
+ * - A worker runs one unit at a time, with its own browser per test thread as in a normal run.
+ *
+ * Usage:
+ * - java -cp [test classpath] com.myapp.example.base.DistributedWorker [coordinator host] [port] [worker name]
+ */
+public class DistributedWorker {
+
+	private static final Logger log = LogManager.getLogger("Distributed");
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: DistributedWorker <coordinator host> <port> [worker name]");
+			System.exit(2);
+		}
+		String name = args.length > 2 ? args[2] : "worker-" + ProcessHandle.current().pid();
+		try (WorkerConnection connection = new WorkerConnection(new Socket(args[0], Integer.parseInt(args[1])))) {
+			connection.send(WorkerConnection.message(WorkerConnection.HELLO).put("worker", name));
+			while (true) {
+				connection.send(WorkerConnection.message(WorkerConnection.NEXT));
+				JSONObject message = connection.receive();
+				if (message == null || WorkerConnection.DONE.equals(message.getString("type"))) {
+					break;
+				}
+				WorkUnit unit = WorkUnit.fromJson(message.getJSONObject("unit"));
+				String xml = run(unit, connection);
+				connection.send(WorkerConnection.message(WorkerConnection.RESULT).put("unit", unit.getId()).put("xml", xml));
+			}
+		} finally {
+			TestRailAPI.close();
+		}
+		log.info("{} finished", name);
+		System.exit(0);
+	}
+
+	/** Runs one unit and returns its testng-results.xml, empty if TestNG did not write one */
+	private static String run(WorkUnit unit, WorkerConnection connection) throws IOException {
+		log.info("Running unit {}", unit);
+		XmlSuite suite = new XmlSuite();
+		suite.setName(unit.getSuiteName());
+		XmlTest test = new XmlTest(suite);
+		test.setName(unit.getTestName());
+		test.setParameters(unit.getParameters());
+		XmlClass testClass = new XmlClass(unit.getClassName());
+		List<XmlInclude> includes = new ArrayList<>();
+		for (String method : unit.getIncludedMethods()) {
+			includes.add(new XmlInclude(method));
+		}
+		testClass.setIncludedMethods(includes);
+		test.setXmlClasses(Collections.singletonList(testClass));
+
+		Path outputDirectory = Files.createTempDirectory("testng-unit-" + unit.getId() + "-");
+		TestNG testng = new TestNG();
+		testng.setXmlSuites(Collections.singletonList(suite));
+		testng.setOutputDirectory(outputDirectory.toString());
+		testng.addListener(new EventStreamer(connection));
+		DataShard.use(unit.getShard());
+		try {
+			testng.run();
+		} finally {
+			DataShard.use(null);
+		}
+		Path results = outputDirectory.resolve("testng-results.xml");
+		return Files.exists(results) ? new String(Files.readAllBytes(results), StandardCharsets.UTF_8) : "";
+	}
+
+	/** Sends every finished invocation to the coordinator as it happens */
+	private static final class EventStreamer implements ITestListener {
+		private final WorkerConnection connection;
+
+		private EventStreamer(WorkerConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public void onTestSuccess(ITestResult result) {
+			send(result, "PASS");
+		}
+
+		@Override
+		public void onTestFailure(ITestResult result) {
+			send(result, "FAIL");
+		}
+
+		@Override
+		public void onTestSkipped(ITestResult result) {
+			send(result, "SKIP");
+		}
+
+		private void send(ITestResult result, String status) {
+			JSONObject event = WorkerConnection.message(WorkerConnection.EVENT);
+			event.put("method", result.getMethod().getQualifiedName());
+			event.put("status", status);
+			event.put("millis", result.getEndMillis() - result.getStartMillis());
+			event.put("suite", result.getTestContext().getSuite().getName());
+			event.putOpt("environment", EnvironmentConfig.getSelectedEnvironment());
+			event.putOpt("browser", RunHistory.browserOf(result));
+			String row = TestHistoryStore.rowKey(result.getParameters());
+			if (row != null) {
+				event.put("row", row);
+			}
+			try {
+				connection.send(event);
+			} catch (IOException e) {
+				log.error("Could not send result of {} to coordinator: {}", result.getMethod().getQualifiedName(), e.getMessage());
+			}
+		}
+	}
+}
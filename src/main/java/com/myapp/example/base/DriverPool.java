@@ -0,0 +1,136 @@
+package com.myapp.example.base;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Keeps browser sessions open between tests of a TestDaemon, so a rerun does not wait for a browser launch.
+ *
+ * Description:
+ * - Disabled by default: acquire creates a new driver and release quits it, exactly as without the pool.
+ * - When enabled by TestDaemon, released drivers are cleaned (cookies deleted, blank page opened) and kept per browser
+ *   name. A kept driver that no longer responds is discarded and a new one is created.
+ * - TestDaemon loads this class in its own class loader, shared by all runs, while test and page classes are reloaded
+ *   for every run. Only Selenium types cross that boundary.
+ */
+public class DriverPool {
+
+	private static volatile boolean enabled;
+
+	private static final Map<String, Deque<WebDriver>> idle = new HashMap<>();
+	private static final Map<WebDriver, String> browsers = new IdentityHashMap<>();
+
+	/** Turns pooling on, for the lifetime of the JVM. Called by TestDaemon. */
+	public static void enable() {
+		enabled = true;
+		Runtime.getRuntime().addShutdownHook(new Thread(DriverPool::quitAll, "driver-pool-shutdown"));
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns a kept driver of the given browser, or a new one from the factory.
+	 *
+	 * @param browser Browser name as given to BrowserDriverFactory.
+	 * @param factory Creates a new driver when none is kept.
+	 */
+	public static WebDriver acquire(String browser, Supplier<WebDriver> factory) {
+		if (enabled) {
+			WebDriver driver;
+			while ((driver = poll(browser)) != null) {
+				if (isAlive(driver)) {
+					return driver;
+				}
+				quit(driver);
+			}
+		}
+		WebDriver driver = factory.get();
+		synchronized (DriverPool.class) {
+			browsers.put(driver, browser);
+		}
+		return driver;
+	}
+
+	/** Keeps the driver for the next test when pooling is enabled, otherwise quits it */
+	public static void release(WebDriver driver) {
+		String browser;
+		synchronized (DriverPool.class) {
+			browser = browsers.get(driver);
+		}
+		if (!enabled || browser == null) {
+			quit(driver);
+			return;
+		}
+		try {
+			driver.manage().deleteAllCookies();
+			driver.get("about:blank");
+		} catch (RuntimeException e) {
+			quit(driver);
+			return;
+		}
+		synchronized (DriverPool.class) {
+			idle.computeIfAbsent(browser, key -> new ArrayDeque<>()).push(driver);
+		}
+	}
+
+	/** Number of drivers currently kept for reuse */
+	public static synchronized int getIdleCount() {
+		int count = 0;
+		for (Deque<WebDriver> drivers : idle.values()) {
+			count += drivers.size();
+		}
+		return count;
+	}
+
+	/** Number of drivers handed out by acquire and not released yet */
+	public static synchronized int getActiveCount() {
+		return browsers.size() - getIdleCount();
+	}
+
+	/** Quits all kept drivers */
+	public static void quitAll() {
+		Deque<WebDriver> drivers = new ArrayDeque<>();
+		synchronized (DriverPool.class) {
+			for (Deque<WebDriver> kept : idle.values()) {
+				drivers.addAll(kept);
+			}
+			idle.clear();
+		}
+		for (WebDriver driver : drivers) {
+			quit(driver);
+		}
+	}
+
+	private static synchronized WebDriver poll(String browser) {
+		Deque<WebDriver> drivers = idle.get(browser);
+		return drivers != null ? drivers.poll() : null;
+	}
+
+	private static boolean isAlive(WebDriver driver) {
+		try {
+			driver.getWindowHandle();
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	private static void quit(WebDriver driver) {
+		synchronized (DriverPool.class) {
+			browsers.remove(driver);
+		}
+		try {
+			driver.quit();
+		} catch (RuntimeException e) {
+			// Session is gone already
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package com.myapp.example.base;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Finds test methods whose duration in a run moved away from their recent baseline in RunHistory.
+ *
+ * Description:
+ * - Durations are compared per method, data row, environment and browser, using passed invocations only, since a
+ *   failing test stops early or waits for a timeout.
+ * - The baseline of a method is the median of its last 'history.baselineRuns' runs (default 10, one mean duration per
+ *   run) before the checked run. Methods with fewer than 'history.minBaselineRuns' runs (default 5) are not checked.
+ * - A duration moved when it differs from the median by more than 'history.regressionThreshold' (default 3.5)
+ *   robust standard deviations (1.4826 * median absolute deviation of the baseline), and by more than
+ *   'history.regressionMinChange' (default 0.25, i.e. 25%) and 'history.regressionMinMillis' (default 200 ms), so
+ *   steady short tests are not flagged for noise. The median ignores single outliers in the baseline.
+ * - Slower and faster tests are both reported, a test that got much faster may have stopped checking something.
+ *
+ * Usage:
+ * - At suite end TestListener logs every finding and writes them to [history.reportDir]/[suite].json
+ *   (default target/duration-regressions).
+ * - Offline, for the latest or a given run, exit code 1 when a test got slower:
+ *   mvn compile exec:java -Dexec.mainClass=com.myapp.example.base.DurationRegressionReport -Dexec.args="test-history [run id]"
+ * - Durations of one method in all stored runs:
+ *   ... -Dexec.args="test-history --method com.myapp.example.ui.SearchTests.gigatron_003_searchItemsAverageValue"
+ */
+public class DurationRegressionReport {
+
+	private static final Logger log = LogManager.getLogger("TestHistory");
+
+	private static final double MAD_TO_STANDARD_DEVIATION = 1.4826;
+
+	private final int baselineRuns;
+	private final int minBaselineRuns;
+	private final double threshold;
+	private final double minChange;
+	private final long minMillis;
+
+	public DurationRegressionReport(int baselineRuns, int minBaselineRuns, double threshold, double minChange,
+			long minMillis) {
+		this.baselineRuns = baselineRuns;
+		this.minBaselineRuns = Math.max(1, minBaselineRuns);
+		this.threshold = threshold;
+		this.minChange = minChange;
+		this.minMillis = minMillis;
+	}
+
+	/** Report with the thresholds from the configuration */
+	public static DurationRegressionReport fromConfig() {
+		return new DurationRegressionReport(EnvironmentConfig.getInt("history.baselineRuns", 10),
+				EnvironmentConfig.getInt("history.minBaselineRuns", 5),
+				Double.parseDouble(EnvironmentConfig.getProperty("history.regressionThreshold", "3.5")),
+				Double.parseDouble(EnvironmentConfig.getProperty("history.regressionMinChange", "0.25")),
+				EnvironmentConfig.getLong("history.regressionMinMillis", 200));
+	}
+
+	/**
+	 * Checks the invocations of a suite in the current run against the stored history, logs every finding and
+	 * writes them to 'history.reportDir'. Called by TestListener after RunHistory.save.
+	 *
+	 * @param history History of this JVM, whose run is checked.
+	 * @param suiteName Name of the finished suite, null to check all suites of the run (report named after the run).
+	 */
+	public static void check(RunHistory history, String suiteName) {
+		List<Finding> findings;
+		try {
+			findings = fromConfig().find(RunHistory.read(history.getFile()), history.getRunId(), suiteName);
+		} catch (IOException e) {
+			log.error("Could not read run history {}: {}", history.getFile(), e.getMessage());
+			return;
+		}
+		if (findings.isEmpty()) {
+			return;
+		}
+		JSONArray json = new JSONArray();
+		for (Finding finding : findings) {
+			log.warn("Duration {}", finding);
+			json.put(finding.toJson());
+		}
+		Path directory = Paths.get(EnvironmentConfig.getProperty("history.reportDir", "target/duration-regressions"));
+		String name = suiteName != null ? suiteName : history.getRunId();
+		Path file = directory.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+		try {
+			Files.createDirectories(directory);
+			Files.write(file, new JSONObject().put("run", history.getRunId()).putOpt("suite", suiteName)
+					.put("findings", json).toString(2).getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			log.error("Could not write duration report to {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * Compares the passed invocations of a run with the runs stored before it.
+	 *
+	 * @param invocations All stored invocations, oldest first, as read by RunHistory.read.
+	 * @param runId The checked run.
+	 * @param suiteName Only invocations of this suite are checked, null for all suites of the run.
+	 * @return Findings, slowest change first.
+	 */
+	public List<Finding> find(List<JSONObject> invocations, String runId, String suiteName) {
+		// key -> run -> total millis and count, runs in the order they appear in the history
+		Map<String, Map<String, long[]>> durations = new HashMap<>();
+		for (JSONObject invocation : invocations) {
+			if (!"PASS".equals(invocation.optString("status"))) {
+				continue;
+			}
+			String run = invocation.optString("run");
+			if (run.equals(runId) && suiteName != null && !suiteName.equals(invocation.optString("suite"))) {
+				continue;
+			}
+			long[] total = durations.computeIfAbsent(key(invocation), k -> new LinkedHashMap<>())
+					.computeIfAbsent(run, r -> new long[2]);
+			total[0] += invocation.optLong("millis");
+			total[1]++;
+		}
+		List<Finding> findings = new ArrayList<>();
+		for (Map.Entry<String, Map<String, long[]>> entry : durations.entrySet()) {
+			long[] current = entry.getValue().get(runId);
+			if (current == null) {
+				continue;
+			}
+			double[] baseline = baseline(entry.getValue(), runId);
+			if (baseline.length < minBaselineRuns) {
+				continue;
+			}
+			double median = median(baseline);
+			double[] deviations = new double[baseline.length];
+			for (int i = 0; i < baseline.length; i++) {
+				deviations[i] = Math.abs(baseline[i] - median);
+			}
+			double spread = MAD_TO_STANDARD_DEVIATION * median(deviations);
+			double duration = (double) current[0] / current[1];
+			double change = Math.abs(duration - median);
+			if (change > threshold * spread && change > minChange * median && change > minMillis) {
+				findings.add(new Finding(entry.getKey(), median, spread, duration, baseline.length));
+			}
+		}
+		findings.sort((a, b) -> Double.compare(b.duration - b.median, a.duration - a.median));
+		return findings;
+	}
+
+	/** Mean duration per run of the last baseline runs before the checked run */
+	private double[] baseline(Map<String, long[]> runs, String runId) {
+		List<Double> before = new ArrayList<>();
+		for (Map.Entry<String, long[]> run : runs.entrySet()) {
+			if (run.getKey().equals(runId)) {
+				break;
+			}
+			before.add((double) run.getValue()[0] / run.getValue()[1]);
+		}
+		List<Double> recent = before.subList(Math.max(0, before.size() - baselineRuns), before.size());
+		double[] values = new double[recent.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = recent.get(i);
+		}
+		return values;
+	}
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int middle = sorted.length / 2;
+		return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+	}
+
+	/** Method, data row, environment and browser, the parts that do not apply are left empty */
+	private static String key(JSONObject invocation) {
+		return invocation.optString("method") + "|" + invocation.optString("row") + "|"
+				+ invocation.optString("environment") + "|" + invocation.optString("browser");
+	}
+
+	/** Test whose duration moved away from its baseline */
+	public static final class Finding {
+		private final String key;
+		private final double median;
+		private final double spread;
+		private final double duration;
+		private final int baselineRuns;
+
+		private Finding(String key, double median, double spread, double duration, int baselineRuns) {
+			this.key = key;
+			this.median = median;
+			this.spread = spread;
+			this.duration = duration;
+			this.baselineRuns = baselineRuns;
+		}
+
+		public String getMethod() {
+			return key.substring(0, key.indexOf('|'));
+		}
+
+		public boolean isSlower() {
+			return duration > median;
+		}
+
+		/** Mean duration in the checked run, in milliseconds */
+		public double getDuration() {
+			return duration;
+		}
+
+		/** Median duration of the baseline runs, in milliseconds */
+		public double getMedian() {
+			return median;
+		}
+
+		private JSONObject toJson() {
+			String[] parts = key.split("\\|", -1);
+			JSONObject json = new JSONObject()
+					.put("method", parts[0])
+					.put("direction", isSlower() ? "slower" : "faster")
+					.put("millis", Math.round(duration))
+					.put("baselineMedianMillis", Math.round(median))
+					.put("baselineSpreadMillis", Math.round(spread))
+					.put("baselineRuns", baselineRuns);
+			json.putOpt("row", parts[1].isEmpty() ? null : parts[1]);
+			json.putOpt("environment", parts[2].isEmpty() ? null : parts[2]);
+			json.putOpt("browser", parts[3].isEmpty() ? null : parts[3]);
+			return json;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%s %s: %.0f ms, baseline %.0f ms +- %.0f over %d runs (%+.0f%%)",
+					isSlower() ? "SLOWER" : "FASTER", key.replaceAll("\\|+", " ").trim(), duration, median,
+					spread, baselineRuns, (duration - median) / median * 100);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path location = Paths.get(args.length > 0 ? args[0] : "test-history");
+		Path file = Files.isDirectory(location) ? location.resolve(RunHistory.RUNS_FILE) : location;
+		List<JSONObject> invocations = RunHistory.read(file);
+		if (invocations.isEmpty()) {
+			System.err.println("No runs in " + file);
+			System.exit(2);
+		}
+		if (args.length > 2 && args[1].equals("--method")) {
+			printMethod(invocations, args[2]);
+			return;
+		}
+		String runId = args.length > 1 ? args[1] : invocations.get(invocations.size() - 1).getString("run");
+		List<Finding> findings = fromConfig().find(invocations, runId, null);
+		System.out.println("Run " + runId + ": " + findings.size() + " tests with changed duration");
+		int slower = 0;
+		for (Finding finding : findings) {
+			System.out.println(finding);
+			if (finding.isSlower()) {
+				slower++;
+			}
+		}
+		System.exit(slower > 0 ? 1 : 0);
+	}
+
+	private static void printMethod(List<JSONObject> invocations, String method) {
+		// run -> lines of the method in that run, run ids start with their date and time
+		Map<String, List<String>> runs = new TreeMap<>();
+		for (JSONObject invocation : invocations) {
+			if (method.equals(invocation.optString("method"))) {
+				runs.computeIfAbsent(invocation.optString("run"), run -> new ArrayList<>()).add(String.format(Locale.ROOT,
+						"%-4s %6d ms %s %s %s", invocation.optString("status"), invocation.optLong("millis"),
+						invocation.optString("row"), invocation.optString("environment"), invocation.optString("browser")).trim());
+			}
+		}
+		for (Map.Entry<String, List<String>> run : runs.entrySet()) {
+			for (String line : run.getValue()) {
+				System.out.println(run.getKey() + "  " + line);
+			}
+		}
+	}
+}
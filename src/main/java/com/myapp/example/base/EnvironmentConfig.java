@@ -3,28 +3,103 @@ package com.myapp.example.base;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
+/**
+ * Configuration of the framework, loaded once per JVM from config.properties, environment variables and system properties.
+ *
+ * Description:
+ * - All three sources are read once when the class is loaded and kept as unmodifiable maps, so lookups are
+ *   plain map reads and safe from any number of threads without locking.
+ * - Precedence for every key: system property, then environment variable, then config.properties.
+ *   The environment variable name is the key in upper case with dots replaced by underscores
+ *   (e.g. 'testRail.batchSize' can be set as TESTRAIL_BATCHSIZE).
+ * - Per-environment sections are keys prefixed with the environment name (e.g. 'staging.url'). Environment lookups
+ *   fall back to the key without prefix.
+ */
 public class EnvironmentConfig {
-    protected static Logger log;
-    private static Properties properties;
+    protected static Logger log = LogManager.getLogger("Environment");
 
+    private static final Map<String, String> fileProperties = loadFileProperties();
+    private static final Map<String, String> environmentVariables = Collections.unmodifiableMap(new HashMap<>(System.getenv()));
+    private static final Map<String, String> systemProperties = copySystemProperties();
 
-    static {
-        properties = new Properties();
-        try {
-            properties.load(EnvironmentConfig.class.getResourceAsStream("/config.properties"));
-            //System.out.println("config.properties loaded successfully.");
-            log = LogManager.getLogger("Environment");
-            log.info("config.properties loaded successfully.");
+    // Environment selected for the suite, see selectEnvironment
+    private static volatile String selectedEnvironment;
+
+    private static Map<String, String> loadFileProperties() {
+        Properties properties = new Properties();
+        try (InputStream input = EnvironmentConfig.class.getResourceAsStream("/config.properties")) {
+            if (input == null) {
+                log.error("config.properties was not found on classpath.");
+            } else {
+                properties.load(input);
+                log.info("config.properties loaded successfully.");
+            }
         } catch (IOException e) {
-            e.printStackTrace();
-            log.info("Error loading config.properties: " + e.getMessage());
-           // System.err.println("Error loading config.properties: " + e.getMessage());
+            log.error("Error loading config.properties: {}", e.getMessage());
+        }
+        Map<String, String> values = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key).trim());
         }
+        return Collections.unmodifiableMap(values);
     }
+
+    private static Map<String, String> copySystemProperties() {
+        Properties properties = System.getProperties();
+        Map<String, String> values = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key));
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Retrieves a configuration value, looking at system properties, environment variables and config.properties in that order.
+     *
+     * @param key The key of the property, as written in config.properties.
+     * @param defaultValue The value returned if the key is not set in any source.
+     */
+    public static String getProperty(String key, String defaultValue) {
+        String value = systemProperties.get(key);
+        if (value == null) {
+            value = environmentVariables.get(key.toUpperCase().replace('.', '_'));
+        }
+        if (value == null) {
+            value = fileProperties.get(key);
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getProperty(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getProperty(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getProperty(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Retrieves a value from the section of the given environment, e.g. 'staging.url' for environment 'staging' and key 'url'.
+     * Falls back to the key without environment prefix, then to the default value.
+     */
+    public static String getEnvironmentProperty(String environment, String key, String defaultValue) {
+        return getProperty(environment + "." + key, getProperty(key, defaultValue));
+    }
+
     /**
     * Retrieves the environment configuration based on the provided parameter.
     * This method determines the environment setting for the application, either from a provided parameter
@@ -36,15 +111,7 @@ public class EnvironmentConfig {
     * - Returns a String representing the environment setting. This could be the provided parameter or a default value.
     */
     public static String getEnvironment( String environmentParameter) {
-        if (environmentParameter != null) {
-            log = LogManager.getLogger("Environment");
-            log.info(environmentParameter);
-            return environmentParameter;
-        } else {
-            log = LogManager.getLogger("Environment");
-            log.info(properties.getProperty("default.environment"));
-            return properties.getProperty("default.environment");
-        }
+        return environmentParameter != null ? environmentParameter : getProperty("default.environment", null);
     }
     /**
     * Retrieves the base URL for the specified environment.
@@ -57,9 +124,24 @@ public class EnvironmentConfig {
     * - Returns a String representing the base URL for the specified environment.
     */
     public static String getBaseUrl(String environmentParameter) {
-        String environment = getEnvironment(environmentParameter);
-        log = LogManager.getLogger("Environment");
-        log.info("URL: " + properties.getProperty(environment + ".url"));
-        return properties.getProperty(environment + ".url");
+        return getProperty(getEnvironment(environmentParameter) + ".url", null);
+    }
+    /**
+     * Selects the environment the suite runs against, so page objects can get its URL without a TestNG parameter.
+     * Called once at suite start. The configuration itself stays unchanged.
+     */
+    public static void selectEnvironment(String environmentParameter) {
+        selectedEnvironment = getEnvironment(environmentParameter);
+        log.info("Environment: {}, URL: {}", selectedEnvironment, getBaseUrl(selectedEnvironment));
+    }
+
+    /** Environment selected for the suite, or the default environment if none was selected */
+    public static String getSelectedEnvironment() {
+        return getEnvironment(selectedEnvironment);
+    }
+
+    /** Base URL of the environment selected for the suite, or of the default environment if none was selected */
+    public static String getBaseUrl() {
+        return getBaseUrl(selectedEnvironment);
     }
-}
\ No newline at end of file
+}
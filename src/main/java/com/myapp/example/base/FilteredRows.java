@@ -0,0 +1,43 @@
+package com.myapp.example.base;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Data provider rows passed on lazily only when they match a condition, e.g. rows of one shard or rows that failed before.
+ */
+class FilteredRows implements Iterator<Object[]> {
+
+	private final Iterator<Object[]> rows;
+	private final Predicate<Map<String, String>> condition;
+	private Object[] next;
+
+	FilteredRows(Iterator<Object[]> rows, Predicate<Map<String, String>> condition) {
+		this.rows = rows;
+		this.condition = condition;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean hasNext() {
+		while (next == null && rows.hasNext()) {
+			Object[] candidate = rows.next();
+			if (condition.test((Map<String, String>) candidate[0])) {
+				next = candidate;
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Object[] next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Object[] row = next;
+		next = null;
+		return row;
+	}
+}
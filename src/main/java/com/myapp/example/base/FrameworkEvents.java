@@ -0,0 +1,231 @@
+package com.myapp.example.base;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the framework, so a recording shows where test time goes next to JVM data like
+ * allocations, GC and thread states.
+ *
+ * Description:
+ * - Events cover driver creation, WebDriver commands, waits in page objects, HTTP calls of API tests and TestRail,
+ *   CSV test data loading and screenshot writes. All are in the "Test Framework" category of JDK Mission Control.
+ * - Every event carries the test method running on its thread (empty on background threads, e.g. the TestRail sender)
+ *   and the locator, endpoint or file it worked on.
+ * - Events are only filled and committed while a recording has them enabled, otherwise begin and commit cost next to
+ *   nothing. Record with e.g. -XX:StartFlightRecording=filename=target/run.jfr,settings=profile
+ * - WebDriver commands are seen through an EventFiringDecorator around new drivers, turned off with
+ *   'jfr.webDriverCommands=false'. The decorator also logs every command at debug level to the 'WebDriverCommands'
+ *   logger, which log4J2.xml sends only to the in-memory test log (see TestLogBufferAppender).
+ */
+public final class FrameworkEvents {
+
+	private static final String CATEGORY = "Test Framework";
+
+	private static final Logger commandLog = LogManager.getLogger("WebDriverCommands");
+
+	private FrameworkEvents() {
+	}
+
+	@Name("com.myapp.example.DriverCreation")
+	@Label("Driver Creation")
+	@Category(CATEGORY)
+	@Description("Start of a browser session by BrowserDriverFactory")
+	public static class DriverCreation extends Event {
+		@Label("Test Method")
+		public String testMethod;
+		@Label("Browser")
+		public String browser;
+	}
+
+	@Name("com.myapp.example.WebDriverCommand")
+	@Label("WebDriver Command")
+	@Category(CATEGORY)
+	@Description("Call on a WebDriver, WebElement or one of their helpers, e.g. navigation")
+	@StackTrace(false)
+	public static class WebDriverCommand extends Event {
+		@Label("Test Method")
+		public String testMethod;
+		@Label("Command")
+		public String command;
+		@Label("Locator")
+		public String locator;
+		@Label("Error")
+		public String error;
+	}
+
+	@Name("com.myapp.example.Wait")
+	@Label("Page Wait")
+	@Category(CATEGORY)
+	@Description("Explicit wait of a page object for an element")
+	public static class Wait extends Event {
+		@Label("Test Method")
+		public String testMethod;
+		@Label("Locator")
+		public String locator;
+		@Label("Timeout Millis")
+		public long timeoutMillis;
+		@Label("Timed Out")
+		public boolean timedOut;
+	}
+
+	@Name("com.myapp.example.HttpCall")
+	@Label("HTTP Call")
+	@Category(CATEGORY)
+	@Description("HTTP request of an API test or of TestRail reporting")
+	public static class HttpCall extends Event {
+		@Label("Test Method")
+		public String testMethod;
+		@Label("Client")
+		public String client;
+		@Label("Method")
+		public String method;
+		@Label("Endpoint")
+		public String endpoint;
+		@Label("Status Code")
+		public int statusCode;
+	}
+
+	@Name("com.myapp.example.CsvLoad")
+	@Label("CSV Load")
+	@Category(CATEGORY)
+	@Description("Loading of data provider rows from a CSV file or its compiled copy")
+	public static class CsvLoad extends Event {
+		@Label("Test Method")
+		public String testMethod;
+		@Label("File")
+		public String file;
+		@Label("Source")
+		public String source;
+		@Label("File Size")
+		@DataAmount
+		public long bytes;
+	}
+
+	@Name("com.myapp.example.ScreenshotWrite")
+	@Label("Screenshot Write")
+	@Category(CATEGORY)
+	@Description("Capture of a screenshot and its copy to the screenshots folder")
+	public static class ScreenshotWrite extends Event {
+		@Label("Test Method")
+		public String testMethod;
+		@Label("File")
+		public String file;
+		@Label("Size")
+		@DataAmount
+		public long bytes;
+	}
+
+	/** Test method running on the current thread, as shown in events */
+	public static String testMethod() {
+		String name = InvocationContext.currentTestMethodName();
+		return name != null ? name : "";
+	}
+
+	/**
+	 * Ends and commits an HTTP call event begun before the request was sent.
+	 *
+	 * @param client Name of the calling client, e.g. RestAssured or TestRail.
+	 * @param statusCode Status code of the response, 0 when no response was received.
+	 */
+	static void commitHttpCall(HttpCall event, String client, String method, String endpoint, int statusCode) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.testMethod = testMethod();
+			event.client = client;
+			event.method = method;
+			event.endpoint = endpoint;
+			event.statusCode = statusCode;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Wraps a new driver so its commands are recorded as WebDriverCommand events, if enabled by 'jfr.webDriverCommands'.
+	 * Wrapped drivers keep all interfaces of the original driver, e.g. TakesScreenshot and JavascriptExecutor.
+	 */
+	public static WebDriver recordCommands(WebDriver driver) {
+		if (!EnvironmentConfig.getBoolean("jfr.webDriverCommands", true)) {
+			return driver;
+		}
+		return new EventFiringDecorator<>(new CommandRecorder()).decorate(driver);
+	}
+
+	/** Turns calls seen by the decorator into events. Calls can nest, e.g. a WebElement asking its driver. */
+	private static final class CommandRecorder implements WebDriverListener {
+		private final ThreadLocal<Deque<WebDriverCommand>> running = ThreadLocal.withInitial(ArrayDeque::new);
+
+		@Override
+		public void beforeAnyCall(Object target, Method method, Object[] args) {
+			WebDriverCommand event = new WebDriverCommand();
+			event.begin();
+			running.get().push(event);
+		}
+
+		@Override
+		public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+			commit(target, method, args, null);
+		}
+
+		@Override
+		public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+			commit(target, method, args, e.getTargetException());
+		}
+
+		private void commit(Object target, Method method, Object[] args, Throwable error) {
+			WebDriverCommand event = running.get().poll();
+			if (event == null) {
+				return;
+			}
+			event.end();
+			boolean log = commandLog.isDebugEnabled();
+			if (event.shouldCommit() || log) {
+				String command = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+				String locator = locatorOf(target, args);
+				String message = error != null ? firstLine(String.valueOf(error)) : null;
+				if (log) {
+					commandLog.debug("{} {}{}", command, locator != null ? locator : "", message != null ? " failed: " + message : "");
+				}
+				if (event.shouldCommit()) {
+					event.testMethod = testMethod();
+					event.command = command;
+					event.locator = locator;
+					event.error = message;
+					event.commit();
+				}
+			}
+		}
+
+		private static String locatorOf(Object target, Object[] args) {
+			if (args != null && args.length > 0 && args[0] instanceof By) {
+				return args[0].toString();
+			}
+			// Elements describe themselves with the locator they were found by
+			return target instanceof WebElement ? target.toString() : null;
+		}
+
+		/** Selenium messages continue with build and driver info on further lines */
+		private static String firstLine(String message) {
+			int end = message.indexOf('\n');
+			return end > 0 ? message.substring(0, end) : message;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package com.myapp.example.base;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.xml.XmlSuite;
+
+/**
+ * Orders test methods longest first, using durations from TestHistoryStore, so parallel runs finish as early as possible.
+ * Optionally runs tests that failed before first, or only those.
+ *
+ * Description:
+ * - TestNG hands methods to free threads in list order. Starting the longest methods first (LPT scheduling) keeps
+ *   a long method from starting last and running alone at the end of the suite.
+ * - Methods without history are given the average stored duration, so a new test is neither always first nor last.
+ * - Methods with equal durations keep their original order. Dependencies are still honored by TestNG.
+ * - The expected duration of the <test> on its thread count is logged next to the serial duration.
+ * - Can be turned off with 'history.schedule=false'.
+ *
+ * Rerun modes ('rerun.mode'):
+ * - failedFirst - methods that failed or were skipped in their last run start before all others.
+ * - failedOnly - only those methods run, together with all methods and groups they depend on (e.g. gigatron_002_insertItem
+ *   for the search tests), so dependent state is set up again. CsvDataProviders passes them only their failed rows.
+ * - Without recorded failures, failedFirst keeps the normal order and failedOnly runs nothing.
+ */
+public class HistoryMethodInterceptor implements IMethodInterceptor {
+
+	private static final Logger log = LogManager.getLogger("TestHistory");
+
+	public static final String FAILED_FIRST = "failedFirst";
+	public static final String FAILED_ONLY = "failedOnly";
+
+	// Depended upon group names compiled once, see groupPattern
+	private static final Map<String, Optional<Pattern>> GROUP_PATTERNS = new ConcurrentHashMap<>();
+
+	@Override
+	public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+		String rerunMode = getRerunMode();
+		if (FAILED_ONLY.equals(rerunMode)) {
+			methods = selectFailed(methods, context);
+		}
+		if (EnvironmentConfig.getBoolean("history.schedule", true) && methods.size() > 1) {
+			methods = orderLongestFirst(methods, context);
+		}
+		if (FAILED_FIRST.equals(rerunMode)) {
+			methods = orderFailedFirst(methods, context);
+		}
+		return methods;
+	}
+
+	/** Rerun mode from 'rerun.mode', null for a normal run */
+	public static String getRerunMode() {
+		String mode = EnvironmentConfig.getProperty("rerun.mode", "");
+		if (mode.isEmpty()) {
+			return null;
+		}
+		if (!FAILED_FIRST.equals(mode) && !FAILED_ONLY.equals(mode)) {
+			throw new IllegalArgumentException("Unknown rerun.mode " + mode + ", expected " + FAILED_FIRST + " or " + FAILED_ONLY);
+		}
+		return mode;
+	}
+
+	/** Failed methods and everything they depend on, in original order */
+	private static List<IMethodInstance> selectFailed(List<IMethodInstance> methods, ITestContext context) {
+		TestHistoryStore history = TestHistoryStore.getInstance();
+		Set<ITestNGMethod> selected = new HashSet<>();
+		Deque<ITestNGMethod> pending = new ArrayDeque<>();
+		for (IMethodInstance method : methods) {
+			if (history.hasFailed(method.getMethod().getQualifiedName())) {
+				pending.add(method.getMethod());
+			}
+		}
+		while (!pending.isEmpty()) {
+			ITestNGMethod method = pending.poll();
+			if (!selected.add(method)) {
+				continue;
+			}
+			for (IMethodInstance candidate : methods) {
+				if (isDependedUpon(method, candidate.getMethod())) {
+					pending.add(candidate.getMethod());
+				}
+			}
+		}
+		List<IMethodInstance> failed = new ArrayList<>();
+		for (IMethodInstance method : methods) {
+			if (selected.contains(method.getMethod())) {
+				failed.add(method);
+			}
+		}
+		log.info("Rerunning {} of {} methods of {} (failed methods and their dependencies)", failed.size(), methods.size(),
+				context.getName());
+		return failed;
+	}
+
+	/** Failed methods first, all others after them, each part in its current order */
+	private static List<IMethodInstance> orderFailedFirst(List<IMethodInstance> methods, ITestContext context) {
+		TestHistoryStore history = TestHistoryStore.getInstance();
+		List<IMethodInstance> failed = new ArrayList<>();
+		List<IMethodInstance> others = new ArrayList<>();
+		for (IMethodInstance method : methods) {
+			(history.hasFailed(method.getMethod().getQualifiedName()) ? failed : others).add(method);
+		}
+		log.info("Running {} previously failed methods of {} first", failed.size(), context.getName());
+		failed.addAll(others);
+		return failed;
+	}
+
+	/**
+	 * True if the method depends on the candidate, directly by method name or through one of the candidate's groups.
+	 * Method names are compared as they are, group names also as patterns (e.g. "init.*"), as TestNG does.
+	 */
+	static boolean isDependedUpon(ITestNGMethod method, ITestNGMethod candidate) {
+		String qualifiedName = candidate.getQualifiedName();
+		for (String dependency : method.getMethodsDependedUpon()) {
+			if (dependency.equals(qualifiedName)) {
+				return true;
+			}
+		}
+		for (String group : method.getGroupsDependedUpon()) {
+			Pattern pattern = groupPattern(group);
+			for (String candidateGroup : candidate.getGroups()) {
+				if (candidateGroup.equals(group) || (pattern != null && pattern.matcher(candidateGroup).matches())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Compiled pattern of a depended upon group, null if the name is not a valid pattern */
+	private static Pattern groupPattern(String group) {
+		return GROUP_PATTERNS.computeIfAbsent(group, name -> {
+			try {
+				return Optional.of(Pattern.compile(name));
+			} catch (PatternSyntaxException e) {
+				return Optional.empty();
+			}
+		}).orElse(null);
+	}
+
+	private static List<IMethodInstance> orderLongestFirst(List<IMethodInstance> methods, ITestContext context) {
+		TestHistoryStore history = TestHistoryStore.getInstance();
+		long unknown = history.getAverageDuration();
+		List<ScheduledMethod> scheduled = new ArrayList<>();
+		for (IMethodInstance method : methods) {
+			long duration = history.getDuration(method.getMethod().getQualifiedName());
+			scheduled.add(new ScheduledMethod(method, duration >= 0 ? duration : unknown));
+		}
+		// List.sort is stable, so equal durations keep their original order
+		scheduled.sort(Comparator.comparingLong((ScheduledMethod method) -> method.duration).reversed());
+
+		List<IMethodInstance> ordered = new ArrayList<>();
+		for (ScheduledMethod method : scheduled) {
+			ordered.add(method.instance);
+		}
+		int threads = getThreadCount(context);
+		log.info("Scheduled {} methods of {} longest first. Expected duration {} ms on {} threads, {} ms serial", ordered.size(),
+				context.getName(), getMakespan(scheduled, threads), threads, getMakespan(scheduled, 1));
+		return ordered;
+	}
+
+	/** Threads running methods of the <test>, 1 unless it runs methods or classes in parallel */
+	private static int getThreadCount(ITestContext context) {
+		XmlSuite.ParallelMode parallel = context.getCurrentXmlTest().getParallel();
+		if (parallel == null || parallel == XmlSuite.ParallelMode.NONE) {
+			return 1;
+		}
+		return Math.max(1, context.getCurrentXmlTest().getThreadCount());
+	}
+
+	/** Time until the last method finishes when methods are handed to the first free of the given threads in order */
+	private static long getMakespan(List<ScheduledMethod> methods, int threads) {
+		PriorityQueue<Long> threadFinishTimes = new PriorityQueue<>();
+		for (int i = 0; i < threads; i++) {
+			threadFinishTimes.add(0L);
+		}
+		long makespan = 0;
+		for (ScheduledMethod method : methods) {
+			long finish = threadFinishTimes.poll() + method.duration;
+			threadFinishTimes.add(finish);
+			makespan = Math.max(makespan, finish);
+		}
+		return makespan;
+	}
+
+	private static final class ScheduledMethod {
+		private final IMethodInstance instance;
+		private final long duration;
+
+		private ScheduledMethod(IMethodInstance instance, long duration) {
+			this.instance = instance;
+			this.duration = duration;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.myapp.example.base;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * State of a single test method invocation, kept per thread so data provider rows can run in parallel.
+ *
+ * Description:
+ * - BaseTest starts a new context before every invocation and removes it afterwards. TestNG runs configuration
+ *   methods of an invocation on the same thread as the invocation itself, so each row sees only its own context.
+ * - The context carries the row handed over by the data provider and the web driver of the invocation.
+ * - Nothing in the context is shared between threads, so it needs no locking. Values that must outlive the invocation,
+ *   e.g. for methods depending on it, have to be published by the test class itself.
+ */
+public class InvocationContext {
+
+	private static final ThreadLocal<InvocationContext> current = new ThreadLocal<>();
+
+	private final String testMethodName;
+	private final Map<String, String> testData;
+	private WebDriver driver;
+
+	private InvocationContext(String testMethodName, Map<String, String> testData) {
+		this.testMethodName = testMethodName;
+		this.testData = testData;
+	}
+
+	/**
+	 * Starts the context of an invocation on the current thread, replacing any context left over on it.
+	 *
+	 * @param testMethodName Name of the invoked test method.
+	 * @param testData Data provider row of the invocation, or null for methods without data provider.
+	 */
+	public static InvocationContext start(String testMethodName, Map<String, String> testData) {
+		InvocationContext context = new InvocationContext(testMethodName,
+				testData != null ? testData : Collections.<String, String>emptyMap());
+		current.set(context);
+		return context;
+	}
+
+	/** Context of the invocation running on the current thread */
+	public static InvocationContext current() {
+		InvocationContext context = current.get();
+		if (context == null) {
+			throw new IllegalStateException("No test invocation is running on thread " + Thread.currentThread().getName());
+		}
+		return context;
+	}
+
+	/** Name of the test method running on the current thread, null outside an invocation, e.g. on background threads */
+	public static String currentTestMethodName() {
+		InvocationContext context = current.get();
+		return context != null ? context.testMethodName : null;
+	}
+
+	/** Removes the context of the current thread once the invocation is finished */
+	public static void end() {
+		current.remove();
+	}
+
+	public String getTestMethodName() {
+		return testMethodName;
+	}
+
+	/** Data provider row of the invocation, empty for methods without data provider */
+	public Map<String, String> getTestData() {
+		return testData;
+	}
+
+	public WebDriver getDriver() {
+		return driver;
+	}
+
+	public void setDriver(WebDriver driver) {
+		this.driver = driver;
+	}
+}
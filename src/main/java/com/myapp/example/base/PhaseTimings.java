@@ -0,0 +1,268 @@
+package com.myapp.example.base;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Time spent by every test invocation in each of its phases, exported at suite end to see where UI suite time goes.
+ *
+ * Description:
+ * - BaseTest begins a record for every invocation on its thread. Framework code measures its phase with
+ *   {@code PhaseTimings.time(Phase.DRIVER, () -> ...)}, adding to the record of the invocation running on the
+ *   current thread. Code running outside an invocation is not measured.
+ * - The test body is taken from the TestNG result by TestListener, which also sets the status of the invocation.
+ *   Screenshots taken by the test are part of its body and are also reported as their own phase.
+ * - Records are kept in a concurrent queue for the whole suite, a record is only written by the thread of its invocation.
+ * - At suite end TestListener writes 'phase-timings-<suite>.json' (every invocation and a summary per phase) and
+ *   'phase-timings-<suite>.prom' (Prometheus text format, per method and phase) into 'timings.dir'
+ *   (default target/phase-timings).
+ */
+public class PhaseTimings {
+
+	private static final Logger log = LogManager.getLogger("PhaseTimings");
+
+	/** Measured phases of an invocation, in the order they usually happen */
+	public enum Phase {
+		DRIVER("driver"),
+		MAXIMIZE("maximize"),
+		BODY("body"),
+		SCREENSHOT("screenshot"),
+		TESTRAIL("testrail"),
+		TEARDOWN("teardown");
+
+		private final String label;
+
+		Phase(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	private static final Queue<PhaseTimings> invocations = new ConcurrentLinkedQueue<>();
+	private static final ThreadLocal<PhaseTimings> current = new ThreadLocal<>();
+
+	private static final Span NOT_MEASURED = () -> { };
+
+	private final String method;
+	private final String row;
+	private final String thread;
+	private final long[] nanos = new long[Phase.values().length];
+	private final int[] counts = new int[Phase.values().length];
+	private volatile String status = "RUNNING";
+
+	private PhaseTimings(String method, String row) {
+		this.method = method;
+		this.row = row;
+		this.thread = Thread.currentThread().getName();
+	}
+
+	/**
+	 * Begins the record of an invocation on the current thread. The record stays bound to the thread until the next
+	 * invocation begins on it, because TestNG runs the after-methods of an invocation in no guaranteed order.
+	 *
+	 * @param method Qualified name of the test method.
+	 * @param row Data provider row of the invocation, null for methods without data provider.
+	 */
+	public static PhaseTimings begin(String method, String row) {
+		PhaseTimings timings = new PhaseTimings(method, row);
+		invocations.add(timings);
+		current.set(timings);
+		return timings;
+	}
+
+	/**
+	 * Records an invocation skipped before it began, e.g. because a method it depends on failed. No before-method runs
+	 * for it, so the record is not bound to the thread, which may still hold the record of its previous invocation.
+	 *
+	 * @param method Qualified name of the test method.
+	 * @param row Data provider row of the invocation, null for methods without data provider.
+	 */
+	public static void skipped(String method, String row) {
+		PhaseTimings timings = new PhaseTimings(method, row);
+		timings.setStatus("SKIP");
+		invocations.add(timings);
+	}
+
+	/** Record of the invocation running on the current thread, or null outside an invocation */
+	public static PhaseTimings current() {
+		return current.get();
+	}
+
+	/**
+	 * True if the record belongs to the given invocation and has no status yet. The thread may still hold the finished
+	 * record of an earlier invocation, also of the same method and row when it is invoked more than once.
+	 */
+	public boolean isFor(String method, String row) {
+		return "RUNNING".equals(status) && this.method.equals(method) && Objects.equals(this.row, row);
+	}
+
+	/** Starts measuring a phase of the current invocation, the time is added when the span is closed */
+	public static Span start(Phase phase) {
+		PhaseTimings timings = current.get();
+		if (timings == null) {
+			return NOT_MEASURED;
+		}
+		long started = System.nanoTime();
+		return () -> timings.add(phase, System.nanoTime() - started);
+	}
+
+	/** Runs the code as the given phase of the current invocation */
+	public static void time(Phase phase, Runnable code) {
+		Span span = start(phase);
+		try {
+			code.run();
+		} finally {
+			span.close();
+		}
+	}
+
+	/** Runs the code as the given phase of the current invocation and returns its result */
+	public static <T> T time(Phase phase, Supplier<T> code) {
+		Span span = start(phase);
+		try {
+			return code.get();
+		} finally {
+			span.close();
+		}
+	}
+
+	public synchronized void add(Phase phase, long elapsedNanos) {
+		nanos[phase.ordinal()] += elapsedNanos;
+		counts[phase.ordinal()]++;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	/** Measured phase, the time is added when it is closed */
+	public interface Span extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	/**
+	 * Writes the timings of all invocations recorded since the previous export as JSON and as Prometheus text format.
+	 *
+	 * @param suiteName Name of the finished suite, written into both files.
+	 */
+	public static void export(String suiteName) {
+		List<PhaseTimings> finished = new ArrayList<>();
+		PhaseTimings next;
+		while ((next = invocations.poll()) != null) {
+			finished.add(next);
+		}
+		if (finished.isEmpty()) {
+			return;
+		}
+		Path directory = Paths.get(EnvironmentConfig.getProperty("timings.dir", "target/phase-timings"));
+		JSONArray records = new JSONArray();
+		long[] phaseTotals = new long[Phase.values().length];
+		long[] phaseMax = new long[Phase.values().length];
+		int[] phaseCounts = new int[Phase.values().length];
+		// method -> total nanos and invocation count per phase, sorted for a stable file
+		Map<String, long[][]> perMethod = new TreeMap<>();
+		for (PhaseTimings timings : finished) {
+			long[] snapshot;
+			int[] snapshotCounts;
+			synchronized (timings) {
+				snapshot = timings.nanos.clone();
+				snapshotCounts = timings.counts.clone();
+			}
+			JSONObject phases = new JSONObject();
+			long[][] methodTotals = perMethod.computeIfAbsent(timings.method, key -> new long[2][Phase.values().length]);
+			for (Phase phase : Phase.values()) {
+				int i = phase.ordinal();
+				if (snapshotCounts[i] == 0) {
+					continue;
+				}
+				phases.put(phase.getLabel(), toMillis(snapshot[i]));
+				phaseTotals[i] += snapshot[i];
+				phaseMax[i] = Math.max(phaseMax[i], snapshot[i]);
+				phaseCounts[i]++;
+				methodTotals[0][i] += snapshot[i];
+				methodTotals[1][i]++;
+			}
+			JSONObject record = new JSONObject();
+			record.put("method", timings.method);
+			if (timings.row != null) {
+				record.put("row", timings.row);
+			}
+			record.put("thread", timings.thread);
+			record.put("status", timings.status);
+			record.put("phasesMillis", phases);
+			records.put(record);
+		}
+		JSONObject summary = new JSONObject();
+		for (Phase phase : Phase.values()) {
+			int i = phase.ordinal();
+			if (phaseCounts[i] > 0) {
+				summary.put(phase.getLabel(), new JSONObject()
+						.put("invocations", phaseCounts[i])
+						.put("totalMillis", toMillis(phaseTotals[i]))
+						.put("averageMillis", toMillis(phaseTotals[i] / phaseCounts[i]))
+						.put("maxMillis", toMillis(phaseMax[i])));
+			}
+		}
+		JSONObject json = new JSONObject();
+		json.put("suite", suiteName);
+		json.put("summary", summary);
+		json.put("invocations", records);
+
+		StringBuilder prometheus = new StringBuilder();
+		prometheus.append("# HELP test_phase_duration_seconds Time spent in a phase of test invocations.\n");
+		prometheus.append("# TYPE test_phase_duration_seconds summary\n");
+		for (Map.Entry<String, long[][]> entry : perMethod.entrySet()) {
+			long[][] totals = entry.getValue();
+			for (Phase phase : Phase.values()) {
+				int i = phase.ordinal();
+				if (totals[1][i] == 0) {
+					continue;
+				}
+				String labels = "{suite=\"" + escape(suiteName) + "\",method=\"" + escape(entry.getKey())
+						+ "\",phase=\"" + phase.getLabel() + "\"}";
+				prometheus.append("test_phase_duration_seconds_sum").append(labels).append(' ')
+						.append(String.format(Locale.ROOT, "%.6f", totals[0][i] / 1e9)).append('\n');
+				prometheus.append("test_phase_duration_seconds_count").append(labels).append(' ')
+						.append(totals[1][i]).append('\n');
+			}
+		}
+		String fileName = "phase-timings-" + suiteName.replaceAll("[^A-Za-z0-9._-]", "_");
+		try {
+			Files.createDirectories(directory);
+			Files.write(directory.resolve(fileName + ".json"), json.toString(2).getBytes(StandardCharsets.UTF_8));
+			Files.write(directory.resolve(fileName + ".prom"), prometheus.toString().getBytes(StandardCharsets.UTF_8));
+			log.info("Phase timings of {} invocations written to {}", records.length(), directory.toAbsolutePath());
+		} catch (IOException e) {
+			log.error("Could not write phase timings to {}: {}", directory, e.getMessage());
+		}
+	}
+
+	private static double toMillis(long nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+
+	private static String escape(String label) {
+		return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,348 @@
+package com.myapp.example.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.ISuite;
+import org.testng.ITestResult;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Live progress of the running suite, served over HTTP while the tests run.
+ *
+ * Description:
+ * - Turned on with 'dashboard.enabled=true', then listens on loopback port 'dashboard.port' (default 47322) from the
+ *   first suite start until the JVM exits. TestListener reports suite start, test start and test finish.
+ * - GET / is a status page, GET /status the current state as JSON, GET /events a server-sent event stream.
+ * - Events: 'suite' (suite started or finished), 'start' and 'finish' of every invocation with its duration, status and
+ *   error, and 'progress' every few seconds while nothing else happens. Every event carries the current counts:
+ *   passed, failed, skipped, running invocations, queued methods (not started yet) and active and idle browsers.
+ * - Memory stays constant for any suite length: only the last 'dashboard.events' events (default 1000) are kept in a
+ *   ring buffer, shared by all clients. Each client reads the buffer from its last event id; a client that fell behind
+ *   the window skips ahead and is told how many events it missed. A reconnecting browser resumes from its
+ *   Last-Event-ID. At most 'dashboard.clients' clients (default 8) are served at once.
+ * - TestDaemon keeps this class between runs (it is not reloaded) and starts every run with reset().
+ *
+ * Usage:
+ * - mvn test '-DsuiteXmlFile=src/test/resources/TestSuites/FullSuite.xml' -Ddashboard.enabled=true
+ *   and open http://localhost:47322/ while the suite runs.
+ */
+public class ProgressDashboard {
+
+	private static final Logger log = LogManager.getLogger("Dashboard");
+
+	static final int DEFAULT_PORT = 47322;
+
+	private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+	private static final int SLOWEST_KEPT = 5;
+
+	private static HttpServer server;
+	private static boolean startFailed;
+	private static volatile EventWindow events;
+
+	private static final AtomicInteger passed = new AtomicInteger();
+	private static final AtomicInteger failed = new AtomicInteger();
+	private static final AtomicInteger skipped = new AtomicInteger();
+	private static final AtomicInteger plannedMethods = new AtomicInteger();
+	// Methods that started at least one invocation, per <test>, bounded by the size of the suite
+	private static final Set<String> startedMethods = ConcurrentHashMap.newKeySet();
+	// Invocations running now with their start time, bounded by the number of test threads
+	private static final Map<ITestResult, Long> running = Collections.synchronizedMap(new IdentityHashMap<>());
+	// Slowest finished invocations, longest first
+	private static final List<JSONObject> slowest = new ArrayList<>();
+	private static volatile long runStarted = System.currentTimeMillis();
+
+	private ProgressDashboard() {
+	}
+
+	/** Clears the counts for a new run in the same JVM, recent events are kept */
+	public static void reset() {
+		passed.set(0);
+		failed.set(0);
+		skipped.set(0);
+		plannedMethods.set(0);
+		startedMethods.clear();
+		running.clear();
+		synchronized (slowest) {
+			slowest.clear();
+		}
+		runStarted = System.currentTimeMillis();
+	}
+
+	/** Starts the server if enabled and not started yet, and adds the methods of the suite to the queue */
+	public static void suiteStarted(ISuite suite) {
+		if (!start()) {
+			return;
+		}
+		plannedMethods.addAndGet(suite.getAllMethods().size());
+		events.add("suite", new JSONObject().put("suite", suite.getName()).put("state", "started"));
+	}
+
+	public static void suiteFinished(ISuite suite) {
+		if (events != null) {
+			events.add("suite", new JSONObject().put("suite", suite.getName()).put("state", "finished"));
+		}
+	}
+
+	public static void testStarted(ITestResult result) {
+		if (events == null) {
+			return;
+		}
+		startedMethods.add(result.getTestContext().getName() + "/" + result.getMethod().getQualifiedName());
+		running.put(result, System.currentTimeMillis());
+		events.add("start", describe(result).put("thread", Thread.currentThread().getName()));
+	}
+
+	/**
+	 * @param status PASS, FAIL or SKIP.
+	 */
+	public static void testFinished(ITestResult result, String status) {
+		if (events == null) {
+			return;
+		}
+		running.remove(result);
+		(status.equals("PASS") ? passed : status.equals("FAIL") ? failed : skipped).incrementAndGet();
+		long millis = Math.max(0, result.getEndMillis() - result.getStartMillis());
+		JSONObject event = describe(result).put("status", status).put("millis", millis);
+		Throwable error = result.getThrowable();
+		if (error != null) {
+			event.put("error", firstLine(String.valueOf(error)));
+		}
+		if (!status.equals("SKIP")) {
+			keepIfSlow(describe(result).put("millis", millis));
+		}
+		events.add("finish", event);
+	}
+
+	/** Current state of the run */
+	static JSONObject status() {
+		JSONObject status = progress()
+				.put("elapsedSeconds", (System.currentTimeMillis() - runStarted) / 1000)
+				.put("plannedMethods", plannedMethods.get());
+		JSONArray now = new JSONArray();
+		long time = System.currentTimeMillis();
+		synchronized (running) {
+			for (Map.Entry<ITestResult, Long> invocation : running.entrySet()) {
+				now.put(describe(invocation.getKey()).put("seconds", (time - invocation.getValue()) / 1000));
+			}
+		}
+		status.put("runningInvocations", now);
+		synchronized (slowest) {
+			status.put("slowest", new JSONArray(slowest));
+		}
+		return status;
+	}
+
+	private static synchronized boolean start() {
+		if (server != null) {
+			return true;
+		}
+		if (startFailed || !EnvironmentConfig.getBoolean("dashboard.enabled", false)) {
+			return false;
+		}
+		int port = EnvironmentConfig.getInt("dashboard.port", DEFAULT_PORT);
+		int clients = Math.max(1, EnvironmentConfig.getInt("dashboard.clients", 8));
+		try {
+			HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+			events = new EventWindow(Math.max(1, EnvironmentConfig.getInt("dashboard.events", 1000)));
+			http.createContext("/events", ProgressDashboard::streamEvents);
+			http.createContext("/status", exchange -> respond(exchange, "application/json",
+					status().toString(2).getBytes(StandardCharsets.UTF_8)));
+			http.createContext("/", ProgressDashboard::page);
+			// Each event stream holds its thread, so the pool bounds the number of clients
+			ExecutorService executor = Executors.newFixedThreadPool(clients, runnable -> {
+				Thread thread = new Thread(runnable, "dashboard");
+				thread.setDaemon(true);
+				return thread;
+			});
+			http.setExecutor(executor);
+			// The dispatcher thread inherits the daemon flag of the starting thread, so the server never keeps the JVM alive
+			Thread starter = new Thread(http::start, "dashboard-start");
+			starter.setDaemon(true);
+			starter.start();
+			starter.join();
+			server = http;
+			log.info("Progress dashboard on http://localhost:{}/", http.getAddress().getPort());
+			return true;
+		} catch (IOException | InterruptedException e) {
+			log.error("Could not start progress dashboard on port {}: {}", port, e.getMessage());
+			// Not retried for later suites of this JVM
+			startFailed = true;
+			return false;
+		}
+	}
+
+	/** Sends buffered events after the client's last one, then new events as they come, until the client goes away */
+	private static void streamEvents(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+		exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+		exchange.sendResponseHeaders(200, 0);
+		String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+		long next = lastEventId != null && lastEventId.matches("\\d+") ? Long.parseLong(lastEventId) + 1 : 0;
+		try (OutputStream output = exchange.getResponseBody()) {
+			while (true) {
+				long end = events.await(next, PROGRESS_INTERVAL_MILLIS);
+				if (end < next) {
+					// Last-Event-ID of an earlier JVM
+					next = events.oldest();
+					continue;
+				}
+				if (end == next) {
+					write(output, "event: progress\ndata: " + progress() + "\n\n");
+					continue;
+				}
+				long first = events.oldest();
+				if (next < first) {
+					if (next > 0) {
+						write(output, "event: missed\ndata: " + new JSONObject().put("events", first - next) + "\n\n");
+					}
+					next = first;
+				}
+				StringBuilder batch = new StringBuilder();
+				for (; next < end; next++) {
+					String event = events.get(next);
+					if (event != null) {
+						batch.append(event);
+					}
+				}
+				write(output, batch.toString());
+			}
+		} catch (IOException e) {
+			// Client closed the page
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static void page(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestURI().getPath().equals("/")) {
+			respond(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+		try (InputStream input = ProgressDashboard.class.getResourceAsStream("/dashboard.html")) {
+			respond(exchange, "text/html; charset=utf-8", input.readAllBytes());
+		}
+	}
+
+	private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+		respond(exchange, 200, contentType, body);
+	}
+
+	private static void respond(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(code, body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	private static void write(OutputStream output, String text) throws IOException {
+		output.write(text.getBytes(StandardCharsets.UTF_8));
+		output.flush();
+	}
+
+	/** Counts sent with every event */
+	private static JSONObject progress() {
+		int active;
+		int idle;
+		synchronized (DriverPool.class) {
+			active = DriverPool.getActiveCount();
+			idle = DriverPool.getIdleCount();
+		}
+		return new JSONObject()
+				.put("passed", passed.get())
+				.put("failed", failed.get())
+				.put("skipped", skipped.get())
+				.put("running", running.size())
+				.put("queued", Math.max(0, plannedMethods.get() - startedMethods.size()))
+				.put("activeDrivers", active)
+				.put("idleDrivers", idle);
+	}
+
+	private static JSONObject describe(ITestResult result) {
+		JSONObject invocation = new JSONObject()
+				.put("test", result.getTestContext().getName())
+				.put("method", result.getMethod().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName());
+		invocation.putOpt("row", TestHistoryStore.rowKey(result.getParameters()));
+		return invocation;
+	}
+
+	private static void keepIfSlow(JSONObject invocation) {
+		synchronized (slowest) {
+			int position = 0;
+			while (position < slowest.size() && slowest.get(position).getLong("millis") >= invocation.getLong("millis")) {
+				position++;
+			}
+			if (position < SLOWEST_KEPT) {
+				slowest.add(position, invocation);
+				if (slowest.size() > SLOWEST_KEPT) {
+					slowest.remove(SLOWEST_KEPT);
+				}
+			}
+		}
+	}
+
+	private static String firstLine(String message) {
+		int end = message.indexOf('\n');
+		return end > 0 ? message.substring(0, end) : message;
+	}
+
+	/** Last events in server-sent event format, numbered from 0, in a fixed ring buffer */
+	private static final class EventWindow {
+		private final String[] events;
+		private long next;
+
+		private EventWindow(int size) {
+			this.events = new String[size];
+		}
+
+		private void add(String type, JSONObject data) {
+			data.put("progress", progress()).put("time", System.currentTimeMillis());
+			synchronized (this) {
+				events[(int) (next % events.length)] = "id: " + next + "\nevent: " + type + "\ndata: " + data + "\n\n";
+				next++;
+				notifyAll();
+			}
+		}
+
+		/** Id of the oldest event still in the window */
+		private synchronized long oldest() {
+			return Math.max(0, next - events.length);
+		}
+
+		/** Event with the given id, null if it left the window */
+		private synchronized String get(long id) {
+			return id >= oldest() && id < next ? events[(int) (id % events.length)] : null;
+		}
+
+		/** Waits until an event after the given id was added or the timeout passed, returns the id of the next event */
+		private synchronized long await(long id, long timeoutMillis) throws InterruptedException {
+			if (next <= id) {
+				wait(timeoutMillis);
+			}
+			return next;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package com.myapp.example.base;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.testng.ITestResult;
+
+/**
+ * Every test invocation of every run, kept on disk across runs for offline analysis and duration regression checks.
+ *
+ * Description:
+ * - Unlike TestHistoryStore, which keeps one blended value per method, this is the raw record: one JSON line per
+ *   invocation in 'runs.jsonl' of 'history.dir' (default test-history) with run id, time, suite, method, data row,
+ *   status, duration, environment, browser and host. Lines can be queried with any JSON lines tool, e.g. jq.
+ * - TestListener records invocations in memory and appends them at suite end, so test threads never touch the file.
+ * - Only the last 'history.maxRuns' runs (default 50) are kept. Older runs are removed when the file is appended to,
+ *   by rewriting it and replacing it atomically.
+ * - Nothing is written with 'history.save=false' (worker JVMs of distributed runs, whose invocations are recorded
+ *   by DistributedCoordinator).
+ * - See DurationRegressionReport for the analysis of the stored runs.
+ */
+public class RunHistory {
+
+	private static final Logger log = LogManager.getLogger("TestHistory");
+
+	static final String RUNS_FILE = "runs.jsonl";
+
+	private static RunHistory instance;
+
+	private final Path file;
+	private final String runId;
+	private final int maxRuns;
+	// Invocations of this run not appended yet
+	private final Queue<JSONObject> pending = new ConcurrentLinkedQueue<>();
+
+	public RunHistory(Path directory, String runId, int maxRuns) {
+		this.file = directory.resolve(RUNS_FILE);
+		this.runId = runId;
+		this.maxRuns = maxRuns;
+	}
+
+	/** History shared by all listeners in this JVM, all its invocations belong to one run */
+	public static synchronized RunHistory getInstance() {
+		if (instance == null) {
+			String runId = EnvironmentConfig.getProperty("history.runId", null);
+			if (runId == null) {
+				runId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + "-"
+						+ ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+			}
+			instance = new RunHistory(Paths.get(EnvironmentConfig.getProperty("history.dir", "test-history")), runId,
+					EnvironmentConfig.getInt("history.maxRuns", 50));
+		}
+		return instance;
+	}
+
+	public String getRunId() {
+		return runId;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Records one finished invocation of a test method.
+	 *
+	 * @param result TestNG result of the invocation.
+	 * @param status PASS, FAIL or SKIP.
+	 */
+	public void record(ITestResult result, String status) {
+		record(result.getTestContext().getSuite().getName(), result.getMethod().getQualifiedName(),
+				TestHistoryStore.rowKey(result.getParameters()), status, result.getEndMillis() - result.getStartMillis(),
+				EnvironmentConfig.getSelectedEnvironment(), browserOf(result));
+	}
+
+	/**
+	 * Records one finished invocation of a test method.
+	 *
+	 * @param method Qualified name of the test method.
+	 * @param row Data provider row, null for methods without parameters.
+	 * @param browser Browser of UI tests, null for API tests.
+	 */
+	public void record(String suite, String method, String row, String status, long millis, String environment,
+			String browser) {
+		JSONObject invocation = new JSONObject()
+				.put("run", runId)
+				.put("time", System.currentTimeMillis())
+				.put("suite", suite)
+				.put("method", method)
+				.put("status", status)
+				.put("millis", Math.max(0, millis))
+				.put("host", HostName.VALUE);
+		// JSONObject drops null values, so absent fields stay absent in the file
+		invocation.putOpt("row", row);
+		invocation.putOpt("environment", environment);
+		invocation.putOpt("browser", browser);
+		pending.add(invocation);
+	}
+
+	/**
+	 * Appends invocations recorded since the previous call to the history file and removes runs beyond 'history.maxRuns'.
+	 */
+	public synchronized void save() {
+		if (!EnvironmentConfig.getBoolean("history.save", true)) {
+			pending.clear();
+			return;
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		int count = 0;
+		try {
+			Files.createDirectories(file.getParent());
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND)) {
+				JSONObject invocation;
+				while ((invocation = pending.poll()) != null) {
+					writer.write(invocation.toString());
+					writer.write('\n');
+					count++;
+				}
+			}
+			log.info("Appended {} invocations of run {} to {}", count, runId, file);
+			removeOldRuns();
+		} catch (IOException e) {
+			log.error("Could not save run history to {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads all stored invocations, oldest first. Lines that are not valid JSON (e.g. cut off by a killed run) are skipped.
+	 *
+	 * @param file The runs.jsonl file of a history directory.
+	 */
+	public static List<JSONObject> read(Path file) throws IOException {
+		List<JSONObject> invocations = new ArrayList<>();
+		if (!Files.exists(file)) {
+			return invocations;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				try {
+					invocations.add(new JSONObject(line));
+				} catch (JSONException e) {
+					log.warn("Skipping damaged line of {}: {}", file, e.getMessage());
+				}
+			}
+		}
+		return invocations;
+	}
+
+	/** Browser of a UI test from the 'browser' parameter of its <test>, null for API tests */
+	static String browserOf(ITestResult result) {
+		if (!(result.getInstance() instanceof BaseTestGui)) {
+			return null;
+		}
+		String browser = result.getTestContext().getCurrentXmlTest().getParameter("browser");
+		// Same default as BaseTestGui.setUp
+		return browser != null ? browser.toLowerCase() : "chrome";
+	}
+
+	private void removeOldRuns() throws IOException {
+		List<JSONObject> invocations = read(file);
+		Set<String> runs = new LinkedHashSet<>();
+		for (JSONObject invocation : invocations) {
+			runs.add(invocation.optString("run"));
+		}
+		if (runs.size() <= maxRuns) {
+			return;
+		}
+		Set<String> kept = new LinkedHashSet<>(new ArrayList<>(runs).subList(runs.size() - maxRuns, runs.size()));
+		Path temporary = Files.createTempFile(file.getParent(), RUNS_FILE, ".tmp");
+		try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			for (JSONObject invocation : invocations) {
+				if (kept.contains(invocation.optString("run"))) {
+					writer.write(invocation.toString());
+					writer.write('\n');
+				}
+			}
+		}
+		try {
+			Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		log.info("Removed {} old runs from {}", runs.size() - maxRuns, file);
+	}
+
+	/** Name of this machine, looked up once */
+	private static final class HostName {
+		private static final String VALUE = lookUp();
+
+		private static String lookUp() {
+			try {
+				return InetAddress.getLocalHost().getHostName();
+			} catch (IOException e) {
+				return "unknown";
+			}
+		}
+	}
+}
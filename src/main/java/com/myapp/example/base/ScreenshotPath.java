@@ -0,0 +1,43 @@
+package com.myapp.example.base;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Builds the file path of a screenshot taken during a test.
+ *
+ * Description:
+ * - Path: [root]/target/test-output/screenshots/[yyyyMMdd]/[suite]/[test]/[test method]/[HHmmssSSS] [file name].png
+ * - Date and time come from a single timestamp, so a screenshot taken at midnight is not filed under the wrong day.
+ * - Formatters are immutable and shared by all threads.
+ */
+public class ScreenshotPath {
+
+	private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HHmmssSSS");
+
+	private ScreenshotPath() {
+	}
+
+	/**
+	 * @param root Project directory, usually the 'user.dir' system property.
+	 * @param time Time the screenshot is taken.
+	 * @param fileName Name given by the test, without extension.
+	 */
+	public static String build(String root, LocalDateTime time, String suiteName, String testName, String methodName,
+			String fileName) {
+		return new StringBuilder(root.length() + fileName.length() + 96)
+				.append(root)
+				.append(File.separatorChar).append("target")
+				.append(File.separatorChar).append("test-output")
+				.append(File.separatorChar).append("screenshots")
+				.append(File.separatorChar).append(DAY.format(time))
+				.append(File.separatorChar).append(suiteName)
+				.append(File.separatorChar).append(testName)
+				.append(File.separatorChar).append(methodName)
+				.append(File.separatorChar).append(TIME.format(time))
+				.append(' ').append(fileName).append(".png")
+				.toString();
+	}
+}
@@ -0,0 +1,131 @@
+package com.myapp.example.base;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Runs each test method without sharded data rows on a single shard, so a sharded run executes it once in total.
+ *
+ * Description:
+ * - DataShard splits only rows of CsvDataProviders. Methods using them run on every shard, each with its own rows.
+ * - Any other method runs only on one shard, so merged reports (see TestResultsMerger) count it once:
+ *   - A method depending on a sharded method runs on the shard of that method's first CSV row. That shard always has
+ *     at least one row of it, so state set up by the rows (e.g. the searched item of the search tests) is there.
+ *   - A method depending on another unsharded method runs on the same shard as that method, so chains stay together.
+ *   - A method without dependencies runs on the shard of its qualified name, hashed the same way as rows.
+ * - Methods that sharded methods depend on run on every shard, since each shard needs them before its rows.
+ * - Nothing is removed when the run is not sharded.
+ */
+public class ShardMethodInterceptor implements IMethodInterceptor {
+
+	private static final Logger log = LogManager.getLogger("CsvDataProviders");
+
+	// Marks methods running on every shard
+	private static final int ALL_SHARDS = -1;
+
+	@Override
+	public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+		DataShard shard = DataShard.fromConfig();
+		if (!shard.isSharded()) {
+			return methods;
+		}
+		Set<ITestNGMethod> everyShard = new HashSet<>();
+		for (IMethodInstance method : methods) {
+			if (isSharded(method.getMethod())) {
+				addWithDependencies(method.getMethod(), methods, everyShard);
+			}
+		}
+		Map<ITestNGMethod, Integer> owners = new HashMap<>();
+		List<IMethodInstance> selected = new ArrayList<>();
+		for (IMethodInstance method : methods) {
+			int owner = ownerOf(method.getMethod(), methods, everyShard, shard, owners, new HashSet<>());
+			if (owner == ALL_SHARDS || owner == shard.getIndex()) {
+				selected.add(method);
+			}
+		}
+		log.info("Using shard {} of {} for {}: running {} of {} methods", shard.getIndex(), shard.getCount(),
+				context.getName(), selected.size(), methods.size());
+		return selected;
+	}
+
+	/** True if rows of the method come from CsvDataProviders and are split between shards */
+	private static boolean isSharded(ITestNGMethod method) {
+		Method javaMethod = method.getConstructorOrMethod().getMethod();
+		Test test = javaMethod != null ? javaMethod.getAnnotation(Test.class) : null;
+		return test != null && !test.dataProvider().isEmpty() && test.dataProviderClass() == CsvDataProviders.class;
+	}
+
+	private static void addWithDependencies(ITestNGMethod method, List<IMethodInstance> methods, Set<ITestNGMethod> selected) {
+		if (!selected.add(method)) {
+			return;
+		}
+		for (IMethodInstance candidate : methods) {
+			if (HistoryMethodInterceptor.isDependedUpon(method, candidate.getMethod())) {
+				addWithDependencies(candidate.getMethod(), methods, selected);
+			}
+		}
+	}
+
+	/** Shard the method runs on, ALL_SHARDS for sharded methods and their dependencies */
+	private static int ownerOf(ITestNGMethod method, List<IMethodInstance> methods, Set<ITestNGMethod> everyShard,
+			DataShard shard, Map<ITestNGMethod, Integer> owners, Set<ITestNGMethod> visiting) {
+		if (everyShard.contains(method)) {
+			return ALL_SHARDS;
+		}
+		Integer known = owners.get(method);
+		if (known != null) {
+			return known;
+		}
+		int owner = shard.shardOf(method.getQualifiedName());
+		// Guards against dependency cycles, which TestNG reports on its own
+		if (visiting.add(method)) {
+			for (IMethodInstance candidate : methods) {
+				ITestNGMethod dependency = candidate.getMethod();
+				if (!HistoryMethodInterceptor.isDependedUpon(method, dependency)) {
+					continue;
+				}
+				int dependencyOwner = isSharded(dependency)
+						? firstRowShard(dependency, shard)
+						: ownerOf(dependency, methods, everyShard, shard, owners, visiting);
+				if (dependencyOwner != ALL_SHARDS) {
+					owner = dependencyOwner;
+					break;
+				}
+			}
+		}
+		owners.put(method, owner);
+		return owner;
+	}
+
+	/** Shard of the first CSV row of a sharded method, ALL_SHARDS if it has no rows or they cannot be read */
+	private static int firstRowShard(ITestNGMethod method, DataShard shard) {
+		File file = CsvDataProviders.getDataFile(method.getConstructorOrMethod().getMethod());
+		try {
+			CsvRowIterator rows = new CsvRowIterator(file);
+			if (!rows.hasNext()) {
+				return ALL_SHARDS;
+			}
+			@SuppressWarnings("unchecked")
+			Map<String, String> row = (Map<String, String>) rows.next()[0];
+			rows.close();
+			return shard.shardOf(row);
+		} catch (RuntimeException e) {
+			log.warn("Could not read first row of {}: {}", file.getPath(), e.getMessage());
+			return ALL_SHARDS;
+		}
+	}
+}
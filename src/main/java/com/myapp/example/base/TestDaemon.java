@@ -0,0 +1,197 @@
+package com.myapp.example.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import org.testng.xml.internal.Parser;
+
+/**
+ * Long-lived local JVM running tests on request, so a rerun skips JVM startup, library class loading and browser launch.
+ *
+ * Description:
+ * - Listens on loopback port 'daemon.port' (default 47321) for TestDaemonClient requests: a suite XML file, or a single
+ *   test class or method. Requests are run one after another.
+ * - Every run loads project classes from 'daemon.classDirs' (default target/classes and target/test-classes) in a new
+ *   ChildFirstClassLoader. Recompiled page objects and tests are used by the next run without restarting the daemon,
+ *   while Selenium, TestNG and RestAssured stay loaded in the daemon's class loader.
+ * - Browser sessions are kept open between tests and runs by DriverPool.
+ * - Results of every invocation are streamed back to the client while the run goes on, followed by a summary.
+ *
+ * Usage:
+ * - Start: mvn test-compile exec:java -Dexec.mainClass=com.myapp.example.base.TestDaemon -Dexec.classpathScope=test
+ * - Recompile with mvn test-compile (or the IDE) and run tests with TestDaemonClient.
+ */
+public class TestDaemon {
+
+	private static final Logger log = LogManager.getLogger("TestDaemon");
+
+	static final int DEFAULT_PORT = 47321;
+
+	static final String STOP = "stop";
+	static final String END = "end";
+
+	// Classes keeping their state between runs, loaded once by the daemon's class loader
+	private static final Set<String> SHARED_CLASSES = new HashSet<>(Arrays.asList(DriverPool.class.getName(),
+			ProgressDashboard.class.getName()));
+
+	private final URL[] classDirectories;
+
+	public TestDaemon(URL[] classDirectories) {
+		this.classDirectories = classDirectories;
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<URL> directories = new ArrayList<>();
+		for (String directory : EnvironmentConfig.getProperty("daemon.classDirs", "target/classes,target/test-classes").split(",")) {
+			directories.add(new File(directory.trim()).toURI().toURL());
+		}
+		int port = EnvironmentConfig.getInt("daemon.port", DEFAULT_PORT);
+		DriverPool.enable();
+		TestDaemon daemon = new TestDaemon(directories.toArray(new URL[0]));
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			log.info("Test daemon listening on {}, loading classes from {}", server.getLocalSocketAddress(), directories);
+			while (true) {
+				try (Socket socket = server.accept(); WorkerConnection connection = new WorkerConnection(socket)) {
+					JSONObject request = connection.receive();
+					if (request == null) {
+						continue;
+					}
+					if (STOP.equals(request.optString("type"))) {
+						connection.send(WorkerConnection.message(END).put("failed", 0).put("message", "Daemon stopped"));
+						break;
+					}
+					daemon.serve(request, connection);
+				} catch (IOException | RuntimeException e) {
+					log.error("Error serving request: {}", e.getMessage());
+				}
+			}
+		} finally {
+			DriverPool.quitAll();
+		}
+		System.exit(0);
+	}
+
+	/** Runs one request and streams its results to the client */
+	private void serve(JSONObject request, WorkerConnection connection) throws IOException {
+		long started = System.currentTimeMillis();
+		Streamer streamer = new Streamer(connection);
+		ProgressDashboard.reset();
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+		try (ChildFirstClassLoader classLoader = new ChildFirstClassLoader(classDirectories, getClass().getClassLoader(), SHARED_CLASSES)) {
+			// TestNG resolves test classes through the context class loader
+			Thread.currentThread().setContextClassLoader(classLoader);
+			TestNG testng = new TestNG();
+			testng.setXmlSuites(createSuites(request));
+			testng.setOutputDirectory(EnvironmentConfig.getProperty("daemon.outputDir", "target/daemon-output"));
+			testng.addListener(streamer);
+			testng.run();
+		} catch (RuntimeException e) {
+			connection.send(WorkerConnection.message(END).put("failed", 1).put("message", "Run failed: " + e));
+			return;
+		} finally {
+			Thread.currentThread().setContextClassLoader(previous);
+		}
+		connection.send(WorkerConnection.message(END)
+				.put("passed", streamer.passed).put("failed", streamer.failed).put("skipped", streamer.skipped)
+				.put("millis", System.currentTimeMillis() - started).put("idleBrowsers", DriverPool.getIdleCount()));
+	}
+
+	/** Suite from a suite file, or a suite of one class or method with the given parameters */
+	private static List<XmlSuite> createSuites(JSONObject request) throws IOException {
+		if (request.has("suite")) {
+			Path suiteFile = Paths.get(request.getString("suite"));
+			if (!Files.exists(suiteFile)) {
+				throw new IllegalArgumentException("Suite file " + suiteFile + " does not exist");
+			}
+			return new ArrayList<>(new Parser(suiteFile.toString()).parseToList());
+		}
+		XmlSuite suite = new XmlSuite();
+		suite.setName("Daemon_Suite");
+		XmlTest test = new XmlTest(suite);
+		test.setName("Daemon_test");
+		Map<String, String> parameters = new HashMap<>();
+		JSONObject requestParameters = request.optJSONObject("parameters");
+		if (requestParameters != null) {
+			for (String key : requestParameters.keySet()) {
+				parameters.put(key, requestParameters.getString(key));
+			}
+		}
+		test.setParameters(parameters);
+		XmlClass testClass = new XmlClass(request.getString("class"), false);
+		if (request.has("method")) {
+			testClass.setIncludedMethods(Collections.singletonList(new XmlInclude(request.getString("method"))));
+		}
+		test.setXmlClasses(Collections.singletonList(testClass));
+		return Collections.singletonList(suite);
+	}
+
+	/** Sends every finished invocation to the client as it happens */
+	private static final class Streamer implements ITestListener {
+		private final WorkerConnection connection;
+		private int passed;
+		private int failed;
+		private int skipped;
+
+		private Streamer(WorkerConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public synchronized void onTestSuccess(ITestResult result) {
+			passed++;
+			send(result, "PASS");
+		}
+
+		@Override
+		public synchronized void onTestFailure(ITestResult result) {
+			failed++;
+			send(result, "FAIL");
+		}
+
+		@Override
+		public synchronized void onTestSkipped(ITestResult result) {
+			skipped++;
+			send(result, "SKIP");
+		}
+
+		private void send(ITestResult result, String status) {
+			JSONObject event = WorkerConnection.message(WorkerConnection.EVENT);
+			event.put("method", result.getMethod().getQualifiedName());
+			event.put("status", status);
+			event.put("millis", result.getEndMillis() - result.getStartMillis());
+			if (result.getThrowable() != null) {
+				event.put("error", String.valueOf(result.getThrowable()));
+			}
+			try {
+				connection.send(event);
+			} catch (IOException e) {
+				log.error("Client disconnected: {}", e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.myapp.example.base;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+
+import org.json.JSONObject;
+
+/**
+ * Sends one request to a running TestDaemon and prints its results as they arrive.
+ *
+ * Usage:
+ * - TestDaemonClient src/test/resources/TestSuites/api/Actions.xml	runs a suite file
+ * - TestDaemonClient -m com.myapp.example.ui.SearchTests#gigatron_002_insertItem	runs one test method (or a whole class without #)
+ * - TestDaemonClient -m ... browser=chrome environment=test	adds suite parameters to a class or method run
+ * - TestDaemonClient stop	stops the daemon and quits its browsers
+ *
+ * Output:
+ * - One line per finished invocation and a summary. Exit code 1 when a test failed or the daemon is not running.
+ */
+public class TestDaemonClient {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: TestDaemonClient <suite.xml> | -m <class>[#method] [name=value...] | stop");
+			System.exit(2);
+		}
+		JSONObject request = createRequest(args);
+		int port = EnvironmentConfig.getInt("daemon.port", TestDaemon.DEFAULT_PORT);
+		int failed;
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port); WorkerConnection connection = new WorkerConnection(socket)) {
+			connection.send(request);
+			failed = printResults(connection);
+		} catch (ConnectException e) {
+			System.err.println("No test daemon is listening on port " + port + ", start com.myapp.example.base.TestDaemon first");
+			failed = 1;
+		}
+		System.exit(failed > 0 ? 1 : 0);
+	}
+
+	private static JSONObject createRequest(String[] args) {
+		if (TestDaemon.STOP.equals(args[0])) {
+			return WorkerConnection.message(TestDaemon.STOP);
+		}
+		JSONObject request = new JSONObject();
+		if (!"-m".equals(args[0])) {
+			request.put("suite", Paths.get(args[0]).toAbsolutePath().toString());
+			return request;
+		}
+		if (args.length < 2) {
+			throw new IllegalArgumentException("-m needs a test class, optionally followed by #method");
+		}
+		String[] target = args[1].split("#", 2);
+		request.put("class", target[0]);
+		if (target.length > 1) {
+			request.put("method", target[1]);
+		}
+		JSONObject parameters = new JSONObject();
+		for (int i = 2; i < args.length; i++) {
+			String[] parameter = args[i].split("=", 2);
+			if (parameter.length != 2) {
+				throw new IllegalArgumentException("Parameter " + args[i] + " is not in name=value form");
+			}
+			parameters.put(parameter[0], parameter[1]);
+		}
+		request.put("parameters", parameters);
+		return request;
+	}
+
+	/** Prints streamed events until the summary arrives, returns the number of failed tests */
+	private static int printResults(WorkerConnection connection) throws IOException {
+		JSONObject message;
+		while ((message = connection.receive()) != null) {
+			if (TestDaemon.END.equals(message.optString("type"))) {
+				if (message.has("message")) {
+					System.out.println(message.getString("message"));
+				} else {
+					System.out.println("Passed: " + message.optInt("passed") + ", failed: " + message.optInt("failed")
+							+ ", skipped: " + message.optInt("skipped") + " in " + message.optLong("millis") + " ms ("
+							+ message.optInt("idleBrowsers") + " browsers kept open)");
+				}
+				return message.optInt("failed");
+			}
+			String line = message.optString("status") + " " + message.optString("method") + " (" + message.optLong("millis") + " ms)";
+			System.out.println(line);
+			if (message.has("error")) {
+				System.out.println("    " + message.getString("error"));
+			}
+		}
+		System.err.println("Daemon closed the connection before the run finished");
+		return 1;
+	}
+}
@@ -0,0 +1,235 @@
+package com.myapp.example.base;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Durations and outcomes of test methods kept across runs, used by HistoryMethodInterceptor to schedule long tests
+ * first and to rerun failed tests.
+ *
+ * Description:
+ * - TestListener records the duration of every invocation. Durations of all data provider rows of a method are
+ *   summed, since TestNG schedules a method with all its rows as one unit.
+ * - On save, the duration of this run is blended into the stored one with weight 'history.smoothing' (default 0.5),
+ *   so one slow run does not reorder the whole suite.
+ * - Outcome of a method is failed when any of its invocations failed or was skipped. For data provider methods the
+ *   failed rows are kept too, so a rerun can pass only those rows (see CsvDataProviders).
+ * - Outcomes of methods that did not run keep their previous value, so a failed-only rerun does not forget other failures.
+ * - History is stored as JSON in 'history.dir' (default test-history) and replaced atomically, so a run killed
+ *   while saving leaves the previous history intact.
+ */
+public class TestHistoryStore {
+
+	private static final Logger log = LogManager.getLogger("TestHistory");
+
+	private static final String DURATIONS_FILE = "durations.json";
+	private static final String OUTCOMES_FILE = "outcomes.json";
+
+	private static TestHistoryStore instance;
+
+	private final Path directory;
+	private final double smoothing;
+	// Durations from previous runs, in milliseconds per qualified method name
+	private final Map<String, Long> durations = new HashMap<>();
+	// Durations recorded in this run and not saved yet
+	private final Map<String, LongAdder> runDurations = new ConcurrentHashMap<>();
+	// Methods that failed in the last run they took part in, with their failed data provider rows (empty without rows)
+	private final Map<String, Set<String>> failures = new HashMap<>();
+	// Outcomes recorded in this run and not saved yet, null rows set means the method passed
+	private final Map<String, Set<String>> runFailures = new HashMap<>();
+
+	public TestHistoryStore(Path directory, double smoothing) {
+		this.directory = directory;
+		this.smoothing = smoothing;
+		load();
+	}
+
+	/** Store shared by all listeners in this JVM */
+	public static synchronized TestHistoryStore getInstance() {
+		if (instance == null) {
+			instance = new TestHistoryStore(Paths.get(EnvironmentConfig.getProperty("history.dir", "test-history")),
+					Double.parseDouble(EnvironmentConfig.getProperty("history.smoothing", "0.5")));
+		}
+		return instance;
+	}
+
+	/**
+	 * Adds the duration of one invocation to this run's total of the method.
+	 *
+	 * @param method Qualified name of the test method, e.g. com.myapp.example.ui.SearchTests.gigatron_003_searchItemsAverageValue.
+	 * @param millis Duration of the invocation in milliseconds.
+	 */
+	public void recordDuration(String method, long millis) {
+		runDurations.computeIfAbsent(method, key -> new LongAdder()).add(Math.max(0, millis));
+	}
+
+	/**
+	 * Records the outcome of one invocation.
+	 *
+	 * @param method Qualified name of the test method.
+	 * @param parameters Parameters of the invocation, the data provider row is the first one.
+	 * @param passed False if the invocation failed or was skipped.
+	 */
+	public synchronized void recordOutcome(String method, Object[] parameters, boolean passed) {
+		Set<String> failedRows = runFailures.get(method);
+		if (passed) {
+			if (!runFailures.containsKey(method)) {
+				runFailures.put(method, null);
+			}
+			return;
+		}
+		if (failedRows == null) {
+			failedRows = new TreeSet<>();
+			runFailures.put(method, failedRows);
+		}
+		String row = rowKey(parameters);
+		if (row != null) {
+			failedRows.add(row);
+		}
+	}
+
+	/** True if the method failed or was skipped in the last run it took part in */
+	public synchronized boolean hasFailed(String method) {
+		return failures.containsKey(method);
+	}
+
+	/** Qualified names of all methods that failed in the last run they took part in */
+	public synchronized Set<String> getFailedMethods() {
+		return new TreeSet<>(failures.keySet());
+	}
+
+	/** Keys of data provider rows that failed in the last run of the method, empty if no rows were recorded */
+	public synchronized Set<String> getFailedRows(String method) {
+		Set<String> rows = failures.get(method);
+		return rows != null ? new TreeSet<>(rows) : Collections.<String>emptySet();
+	}
+
+	/** Key identifying a data provider row across runs, null for invocations without parameters */
+	public static String rowKey(Object[] parameters) {
+		return parameters != null && parameters.length > 0 ? String.valueOf(parameters[0]) : null;
+	}
+
+	/** Stored duration of the method in milliseconds, or -1 if the method has no history yet */
+	public synchronized long getDuration(String method) {
+		Long duration = durations.get(method);
+		return duration != null ? duration : -1;
+	}
+
+	/** Average of all stored durations, or 0 without any history */
+	public synchronized long getAverageDuration() {
+		if (durations.isEmpty()) {
+			return 0;
+		}
+		long total = 0;
+		for (long duration : durations.values()) {
+			total += duration;
+		}
+		return total / durations.size();
+	}
+
+	/**
+	 * Blends durations and outcomes recorded since the last save into the history and writes it to disk.
+	 * Does nothing with 'history.save=false', e.g. in worker JVMs whose results are saved by DistributedCoordinator.
+	 */
+	public synchronized void save() {
+		if (!EnvironmentConfig.getBoolean("history.save", true)) {
+			runDurations.clear();
+			runFailures.clear();
+			return;
+		}
+		if (!runDurations.isEmpty()) {
+			for (String method : runDurations.keySet()) {
+				long runDuration = runDurations.remove(method).sum();
+				Long previous = durations.get(method);
+				durations.put(method, previous == null ? runDuration
+						: Math.round(smoothing * runDuration + (1 - smoothing) * previous));
+			}
+			JSONObject json = new JSONObject();
+			for (Map.Entry<String, Long> entry : durations.entrySet()) {
+				json.put(entry.getKey(), entry.getValue());
+			}
+			write(DURATIONS_FILE, json);
+		}
+		if (!runFailures.isEmpty()) {
+			for (Map.Entry<String, Set<String>> entry : runFailures.entrySet()) {
+				if (entry.getValue() == null) {
+					failures.remove(entry.getKey());
+				} else {
+					failures.put(entry.getKey(), entry.getValue());
+				}
+			}
+			runFailures.clear();
+			JSONObject json = new JSONObject();
+			for (Map.Entry<String, Set<String>> entry : failures.entrySet()) {
+				json.put(entry.getKey(), new JSONArray(entry.getValue()));
+			}
+			write(OUTCOMES_FILE, json);
+		}
+	}
+
+	private void load() {
+		JSONObject json = read(DURATIONS_FILE);
+		for (String method : json.keySet()) {
+			durations.put(method, json.getLong(method));
+		}
+		json = read(OUTCOMES_FILE);
+		for (String method : json.keySet()) {
+			Set<String> rows = new TreeSet<>();
+			JSONArray failedRows = json.getJSONArray(method);
+			for (int i = 0; i < failedRows.length(); i++) {
+				rows.add(failedRows.getString(i));
+			}
+			failures.put(method, rows);
+		}
+		if (!durations.isEmpty() || !failures.isEmpty()) {
+			log.info("Loaded history of {} test methods, {} failed, from {}", durations.size(), failures.size(), directory);
+		}
+	}
+
+	private JSONObject read(String fileName) {
+		Path file = directory.resolve(fileName);
+		if (!Files.exists(file)) {
+			return new JSONObject();
+		}
+		try {
+			return new JSONObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+		} catch (IOException | JSONException e) {
+			// History only affects ordering and reruns, a damaged file is rebuilt by the next save
+			log.error("Ignoring unreadable test history {}: {}", file, e.getMessage());
+			return new JSONObject();
+		}
+	}
+
+	private void write(String fileName, JSONObject json) {
+		try {
+			Files.createDirectories(directory);
+			Path temporary = Files.createTempFile(directory, fileName, ".tmp");
+			Files.write(temporary, json.toString(2).getBytes(StandardCharsets.UTF_8));
+			try {
+				Files.move(temporary, directory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			log.error("Could not save test history to {}: {}", directory, e.getMessage());
+		}
+	}
+}
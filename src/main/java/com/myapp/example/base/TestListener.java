@@ -2,15 +2,17 @@ package com.myapp.example.base;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 
-public class TestListener implements ITestListener {
+public class TestListener implements ITestListener, ISuiteListener {
+
+	// One listener instance serves all test contexts and parallel invocations, so names are taken from the result
+	// or context of each callback instead of being kept in fields.
 
-	Logger log;
-	String testName;
-	String testMethodName;
 	/**
  	* Actions to be performed at the start of each test method execution.
  	* This method is part of a TestNG listener and is executed each time a test method starts.
@@ -19,15 +21,13 @@ public class TestListener implements ITestListener {
  	*               It contains information about the test method that is about to be executed.
  	*
  	* Description:
- 	* - The method updates the class fields `testName` and `testMethodName` with the full class name and method name of the test, respectively.
- 	* - It initializes and logs the start of the test method execution.
+ 	* - It logs the start of the test method execution with the logger of its test context.
+ 	* - The start is shown on the ProgressDashboard, as are the results of the callbacks below.
  	*/
 	@Override
 	public void onTestStart(ITestResult result) {
-		this.testName = result.getMethod().getTestClass().getName();
-
-		this.testMethodName = result.getMethod().getMethodName();
-		log.info("[Starting " + testMethodName + "]");
+		getLogger(result.getTestContext()).info("[Starting {}]", result.getMethod().getMethodName());
+		ProgressDashboard.testStarted(result);
 	}
 
 	/**
@@ -37,11 +37,17 @@ public class TestListener implements ITestListener {
  	* @param result The ITestResult instance provided by TestNG, containing information about the test method that has executed.
  	*
  	* Description:
- 	* - The method logs a message indicating that the test method, identified by 'testMethodName', has passed successfully.
+ 	* - The method logs a message indicating that the test method has passed successfully.
+ 	* - The duration of the test body is recorded in PhaseTimings and TestHistoryStore, the invocation in RunHistory.
  	*/
 	@Override
 	public void onTestSuccess(ITestResult result) {
-		log.info("[Test " + testMethodName + " passed]");
+		getLogger(result.getTestContext()).info("[Test {} passed]", result.getMethod().getMethodName());
+		recordPhaseTiming(result, "PASS");
+		recordDuration(result);
+		recordOutcome(result, true);
+		RunHistory.getInstance().record(result, "PASS");
+		ProgressDashboard.testFinished(result, "PASS");
 	}
 
 	/**
@@ -51,11 +57,17 @@ public class TestListener implements ITestListener {
 	 * @param result The ITestResult instance provided by TestNG, containing information about the test method that failed.
 	 *
 	 * Description:
-	 * - The method logs a message indicating that the test method, identified by 'testMethodName', has failed.
+	 * - The method logs a message indicating that the test method has failed.
+	 * - The duration and outcome of the invocation are recorded in TestHistoryStore and RunHistory, the test body in PhaseTimings.
 	 */
 	@Override
 	public void onTestFailure(ITestResult result) {
-		log.info("[Test " + testMethodName + " failed]");
+		getLogger(result.getTestContext()).info("[Test {} failed]", result.getMethod().getMethodName());
+		recordPhaseTiming(result, "FAIL");
+		recordDuration(result);
+		recordOutcome(result, false);
+		RunHistory.getInstance().record(result, "FAIL");
+		ProgressDashboard.testFinished(result, "FAIL");
 	}
 
 	/**
@@ -67,14 +79,26 @@ public class TestListener implements ITestListener {
  	* Description:
  	* - The method logs a message indicating that a particular test method was skipped.
  	* - It also checks if there is a Throwable associated with the skipped test (indicating the reason for skipping) and logs its message.
+ 	* - The invocation is marked as skipped in PhaseTimings. Invocations skipped before any before-method ran get a record
+ 	*   of their own, the record on the thread then belongs to the previous invocation.
  	*/
 	@Override
 	public void onTestSkipped(ITestResult result) {
-		log.info("Test Skipped: " + result.getMethod().getMethodName());
+		Logger log = getLogger(result.getTestContext());
+		log.info("Test Skipped: {}", result.getMethod().getMethodName());
 		Throwable skipCause = result.getThrowable();
 		if (skipCause != null) {
-			log.info("Reason for Skipping: " + skipCause.getMessage());
+			log.info("Reason for Skipping: {}", skipCause.getMessage());
 		}
+		PhaseTimings timings = currentPhaseTimings(result);
+		if (timings != null) {
+			timings.setStatus("SKIP");
+		} else {
+			PhaseTimings.skipped(result.getMethod().getQualifiedName(), TestHistoryStore.rowKey(result.getParameters()));
+		}
+		recordOutcome(result, false);
+		RunHistory.getInstance().record(result, "SKIP");
+		ProgressDashboard.testFinished(result, "SKIP");
 	}
 	/**
  	* Callback method that is invoked by TestNG at the start of a test context (e.g., a <test> tag in XML suite).
@@ -83,15 +107,12 @@ public class TestListener implements ITestListener {
  	* @param context The ITestContext instance provided by TestNG, containing information about the current test context.
  	*
  	* Description:
- 	* - The method sets the class field 'testName' with the name of the current test context.
- 	* - It initializes a logger for the test context, using the test name for logging.
  	* - The method logs the start of the test context, indicating that a group of tests (as defined in a <test> tag) has started execution.
+ 	*   The logger is named after the test context.
  	*/
 	@Override
 	public void onStart(ITestContext context) {
-		this.testName = context.getCurrentXmlTest().getName();
-		this.log = LogManager.getLogger(testName);
-		log.info("[TEST " + testName + " STARTED]");
+		getLogger(context).info("[TEST {} STARTED]", context.getName());
 	}
 	/**
  	* Callback method that is invoked by TestNG at the end of a test context (e.g., a <test> tag in XML suite).
@@ -100,11 +121,75 @@ public class TestListener implements ITestListener {
  	* @param context The ITestContext instance provided by TestNG, containing information about the current test context that has just finished.
  	*
  	* Description:
- 	* - The method logs a message indicating the completion of all tests within the current test context, identified by 'testName'.
+ 	* - The method logs a message indicating the completion of all tests within the current test context.
+ 	* - Durations recorded during the test context are saved to TestHistoryStore for scheduling of next runs.
  	*/
 	@Override
 	public void onFinish(ITestContext context) {
-		log.info("[ALL " + testName + " FINISHED]");
+		getLogger(context).info("[ALL {} FINISHED]", context.getName());
+		TestHistoryStore.getInstance().save();
+	}
+
+	/**
+	 * Callback method that is invoked by TestNG before the first test context of a suite starts.
+	 *
+	 * @param suite The ISuite instance provided by TestNG for the starting suite.
+	 *
+	 * Description:
+	 * - Starts the ProgressDashboard when 'dashboard.enabled=true' and queues the methods of the suite on it.
+	 */
+	@Override
+	public void onStart(ISuite suite) {
+		ProgressDashboard.suiteStarted(suite);
+	}
+
+	/**
+	 * Callback method that is invoked by TestNG once all test contexts of a suite have finished.
+	 *
+	 * @param suite The ISuite instance provided by TestNG for the finished suite.
+	 *
+	 * Description:
+	 * - Phase timings of all invocations of the suite are exported as JSON and Prometheus text files, see PhaseTimings.
+	 * - Invocations of the suite are appended to RunHistory and their durations checked against previous runs,
+	 *   see DurationRegressionReport.
+	 */
+	@Override
+	public void onFinish(ISuite suite) {
+		PhaseTimings.export(suite.getName());
+		RunHistory history = RunHistory.getInstance();
+		history.save();
+		DurationRegressionReport.check(history, suite.getName());
+		ProgressDashboard.suiteFinished(suite);
+	}
+
+	private static Logger getLogger(ITestContext context) {
+		return LogManager.getLogger(context.getName());
+	}
+
+	/** Test body of the invocation, TestNG calls the listener on the invocation's thread before its after-methods */
+	private void recordPhaseTiming(ITestResult result, String status) {
+		PhaseTimings timings = currentPhaseTimings(result);
+		if (timings != null) {
+			timings.add(PhaseTimings.Phase.BODY, (result.getEndMillis() - result.getStartMillis()) * 1_000_000L);
+			timings.setStatus(status);
+		}
+	}
+
+	/** Record of the invocation on the current thread, or null if the thread still holds the record of an earlier one */
+	private static PhaseTimings currentPhaseTimings(ITestResult result) {
+		PhaseTimings timings = PhaseTimings.current();
+		return timings != null
+				&& timings.isFor(result.getMethod().getQualifiedName(), TestHistoryStore.rowKey(result.getParameters()))
+				? timings : null;
+	}
+
+	private void recordDuration(ITestResult result) {
+		TestHistoryStore.getInstance().recordDuration(result.getMethod().getQualifiedName(),
+				result.getEndMillis() - result.getStartMillis());
+	}
+
+	private void recordOutcome(ITestResult result, boolean passed) {
+		TestHistoryStore.getInstance().recordOutcome(result.getMethod().getQualifiedName(), result.getParameters(), passed);
 	}
 
 }
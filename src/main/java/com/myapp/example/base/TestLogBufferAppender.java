@@ -0,0 +1,187 @@
+package com.myapp.example.base;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.testng.ITestResult;
+
+/**
+ * Keeps the log of every test invocation in memory and writes it to disk only when the invocation did not pass.
+ *
+ * Description:
+ * - BaseTest marks each invocation with a unique id in the thread context. Events carrying an id are kept in a bounded
+ *   buffer of that invocation (attribute 'maxEvents', oldest events are dropped first), together with the WebDriver
+ *   command trace logged by FrameworkEvents at debug level to the 'WebDriverCommands' logger.
+ * - When the invocation ends, BaseTest logs its verdict to the 'TestLogBuffer' logger. Loggers are asynchronous, so the
+ *   verdict arrives here after all events the test thread logged before it.
+ * - Failed and skipped invocations are written to [directory]/[test class].[test method]-[invocation].log. Passed
+ *   ones are discarded, except a random 'sampleRate' fraction (0.0 to 1.0, default 0) kept for comparison.
+ * - Invocations without verdict when logging stops, e.g. a run killed by a timeout, are written as unfinished.
+ *
+ * Configuration (log4J2.xml):
+ *   &lt;TestLogBuffer name="TestBuffer" directory="logs/tests" maxEvents="5000" sampleRate="0.0"&gt; with a layout
+ */
+@Plugin(name = "TestLogBuffer", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public class TestLogBufferAppender extends AbstractAppender {
+
+	/** Thread context key naming the running test method, e.g. SearchTests.gigatron_002_insertItem */
+	public static final String TEST_KEY = "test";
+	/** Thread context key identifying the running invocation, unique within the JVM */
+	public static final String INVOCATION_KEY = "invocation";
+	/** Logger receiving the verdict of an invocation, its message is PASS, FAIL or SKIP */
+	public static final String VERDICT_LOGGER = "TestLogBuffer";
+
+	private static final AtomicLong invocations = new AtomicLong();
+
+	private final Path directory;
+	private final int maxEvents;
+	private final double sampleRate;
+	private final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+	private TestLogBufferAppender(String name, Layout<? extends Serializable> layout, Filter filter, Path directory,
+			int maxEvents, double sampleRate) {
+		super(name, filter, layout, true);
+		this.directory = directory;
+		this.maxEvents = maxEvents;
+		this.sampleRate = sampleRate;
+	}
+
+	@PluginFactory
+	public static TestLogBufferAppender createAppender(
+			@PluginAttribute("name") String name,
+			@PluginAttribute(value = "directory", defaultString = "logs/tests") String directory,
+			@PluginAttribute(value = "maxEvents", defaultInt = 5000) int maxEvents,
+			@PluginAttribute(value = "sampleRate", defaultDouble = 0.0) double sampleRate,
+			@PluginElement("Layout") Layout<? extends Serializable> layout,
+			@PluginElement("Filter") Filter filter) {
+		if (layout == null) {
+			layout = PatternLayout.createDefaultLayout();
+		}
+		return new TestLogBufferAppender(name, layout, filter, Paths.get(directory), Math.max(1, maxEvents),
+				Math.min(1.0, Math.max(0.0, sampleRate)));
+	}
+
+	/**
+	 * Marks log events of the current thread as belonging to a new invocation of the given test method.
+	 *
+	 * @param testName Test class and method, e.g. SearchTests.gigatron_002_insertItem.
+	 */
+	public static void startInvocation(String testName) {
+		ThreadContext.put(TEST_KEY, testName);
+		ThreadContext.put(INVOCATION_KEY, testName + "-" + invocations.incrementAndGet());
+	}
+
+	/**
+	 * Sends the verdict of the invocation running on the current thread and stops marking its log events.
+	 *
+	 * @param result Result of the test method, null when the invocation did not get as far as the test method.
+	 */
+	public static void finishInvocation(ITestResult result) {
+		if (ThreadContext.get(INVOCATION_KEY) == null) {
+			return;
+		}
+		String verdict = result == null ? "SKIP"
+				: result.getStatus() == ITestResult.SUCCESS ? "PASS"
+				: result.getStatus() == ITestResult.FAILURE ? "FAIL" : "SKIP";
+		LogManager.getLogger(VERDICT_LOGGER).info(verdict);
+		ThreadContext.remove(TEST_KEY);
+		ThreadContext.remove(INVOCATION_KEY);
+	}
+
+	@Override
+	public void append(LogEvent event) {
+		String invocation = event.getContextData().getValue(INVOCATION_KEY);
+		if (invocation == null) {
+			return;
+		}
+		if (VERDICT_LOGGER.equals(event.getLoggerName())) {
+			finish(invocation, event.getMessage().getFormattedMessage());
+			return;
+		}
+		// Async events are reused by the ring buffer, so they are kept as formatted text
+		String line = String.valueOf(getLayout().toSerializable(event));
+		buffers.computeIfAbsent(invocation, key -> new Buffer()).add(line, maxEvents);
+	}
+
+	private void finish(String invocation, String verdict) {
+		Buffer buffer = buffers.remove(invocation);
+		if (buffer == null) {
+			return;
+		}
+		if ("PASS".equals(verdict) && (sampleRate == 0.0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+			return;
+		}
+		write(invocation, verdict, buffer);
+	}
+
+	private void write(String invocation, String verdict, Buffer buffer) {
+		Path file = directory.resolve(invocation.replaceAll("[^A-Za-z0-9._-]", "_") + ".log");
+		try {
+			Files.createDirectories(directory);
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				writer.write("Invocation " + invocation + ": " + verdict + System.lineSeparator());
+				if (buffer.dropped > 0) {
+					writer.write("... " + buffer.dropped + " earlier events dropped, buffer holds " + maxEvents
+							+ System.lineSeparator());
+				}
+				for (String line : buffer.lines) {
+					writer.write(line);
+				}
+			}
+		} catch (IOException e) {
+			error("Could not write log of " + invocation + " to " + file, e);
+		}
+	}
+
+	@Override
+	public boolean stop(long timeout, TimeUnit timeUnit) {
+		setStopping();
+		for (String invocation : buffers.keySet()) {
+			Buffer buffer = buffers.remove(invocation);
+			if (buffer != null) {
+				write(invocation, "UNFINISHED", buffer);
+			}
+		}
+		boolean stopped = super.stop(timeout, timeUnit, false);
+		setStopped();
+		return stopped;
+	}
+
+	/** Log of one invocation, appended to by the logging thread (or by the test thread with synchronous loggers) */
+	private static final class Buffer {
+		private final ArrayDeque<String> lines = new ArrayDeque<>();
+		private long dropped;
+
+		private void add(String line, int maxEvents) {
+			if (lines.size() == maxEvents) {
+				lines.poll();
+				dropped++;
+			}
+			lines.add(line);
+		}
+	}
+}
@@ -1,41 +1,88 @@
 package com.myapp.example.base;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.testng.ITestResult;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class TestRailAPI {
 
+    private static final Logger log = LogManager.getLogger("TestRail");
+
     private static String username = "";
     private static String password = "";
     private static String testRailUrl = "";
-    private CloseableHttpClient client;
+    private static String authHeader;
+    private static boolean configured;
+
+    // One pooled keep-alive client and one rate limiter for the whole suite, see execute
+    private static CloseableHttpClient client;
+    private static TestRailRateLimiter rateLimiter;
+
+    // Local record of every reported result, see reportTestResult and TestRailJournal
+    private static TestRailJournal journal;
+    private static boolean journalOpened;
+
+    // Results waiting to be sent in bulk, see queueTestResult and flushTestResults
+    private static final List<TestRailResult> pendingResults = new ArrayList<>();
+
+    // Tests of the current run indexed by title, see getTestCaseIdInTestRun
+    private static volatile Map<String, TestRailTest> testIndex = new HashMap<>();
+    private static volatile int indexedTestRunId = -1;
+    private static volatile long indexedAtNanos;
 
-    public void TestRailAPI(String username, String password, String testRailUrl) {
-        this.username = username;
-        this.password = password;
-        this.testRailUrl = testRailUrl;
-        this.client = HttpClients.createDefault();
+    /**
+     * Sets TestRail URL and credentials used by all requests.
+     * Without this call they are read from 'testRail.url', 'testRail.username' and 'testRail.password'
+     * properties on first request.
+     */
+    public static synchronized void configure(String username, String password, String testRailUrl) {
+        TestRailAPI.username = username;
+        TestRailAPI.password = password;
+        TestRailAPI.testRailUrl = testRailUrl;
+        TestRailAPI.authHeader = "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        configured = true;
+    }
+
+    private static synchronized void ensureConfigured() {
+        if (!configured) {
+            configure(getProperty("testRail.username", ""), getProperty("testRail.password", ""), getProperty("testRail.url", ""));
+        }
     }
     /**
-    * Retrieves the value of a specified property from a properties file, with a default value as a fallback.
-    * This method is designed to access configuration settings from a properties file.
+    * Retrieves the value of a specified property from the configuration, with a default value as a fallback.
+    * Kept for existing callers, the lookup is done by EnvironmentConfig from its load-once snapshot.
     *
     * @param key The key of the property to be retrieved.
     * @param defaultValue The default value to return if the property key is not found or in case of any issues.
@@ -44,20 +91,7 @@ public class TestRailAPI {
     * - Returns a String representing the value of the specified property or the default value if the property is not found.
     */
     public static String getProperty(String key, String defaultValue) {
-        Properties prop = new Properties();
-        String value = defaultValue;
-
-        try (InputStream input = TestRailAPI.class.getClassLoader().getResourceAsStream("config.properties")) {
-            if (input == null) {
-                System.out.println("Sorry, unable to find config.properties");
-                return defaultValue;
-            }
-            prop.load(input);
-            value = prop.getProperty(key, defaultValue);
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-        return value;
+        return EnvironmentConfig.getProperty(key, defaultValue);
     }
 
     /**
@@ -72,38 +106,32 @@ public class TestRailAPI {
     * - Returns an integer representing the ID of the newly created test run. Returns -1 if creation fails.
     */
     public static int createTestRunAndGetId( int projectId, String runName, String description) {
-        String auth = Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
+        ensureConfigured();
         String url = testRailUrl + "/index.php?/api/v2/add_run/" + projectId;
         int testRunId = -1;
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
+        try {
             HttpPost post = new HttpPost(url);
-            post.setHeader(HttpHeaders.AUTHORIZATION, "Basic " + auth);
-            post.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
 
             JSONObject json = new JSONObject();
             json.put("name", runName);
             json.put("description", description);
             // Add more fields as needed
 
-            StringEntity entity = new StringEntity(json.toString());
-            post.setEntity(entity);
+            post.setEntity(new StringEntity(json.toString(), StandardCharsets.UTF_8));
 
-            try (CloseableHttpResponse response = client.execute(post)) {
-                String result = EntityUtils.toString(response.getEntity());
-                JSONObject resultJson = new JSONObject(result);
-                if (resultJson.has("id")) {
-                    testRunId = resultJson.getInt("id");
-                }
+            JSONObject resultJson = new JSONObject(execute(post).body);
+            if (resultJson.has("id")) {
+                testRunId = resultJson.getInt("id");
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Error creating Test Run: {}", e.getMessage());
         }
         return testRunId;
     }
     /**
      * Retrieves the case ID and run ID of a specific test case in a given TestRail test run.
-     * This method communicates with the TestRail API to fetch details of a test case within a specific test run.
+     * This method looks the test case up in an index of the run's tests, which is downloaded from TestRail once per run.
      *
      * @param currentTestRunId The ID of the test run in TestRail from which the test case details are to be retrieved.
      * @param testCaseTitle The title of the test case to search for within the test run.
@@ -113,51 +141,96 @@ public class TestRailAPI {
      *   Returns -1 for these IDs if the test case is not found or in case of any issues.
      *
      * Description:
-     * - The method builds an HTTP GET request to the TestRail API's 'get_tests' endpoint for the specified test run ID.
-     * - It sets up the necessary authentication headers for the request.
-     * - The method processes the response from TestRail to find the test case with the given title and extracts its case ID and run ID.
-     * - Exception handling is implemented to catch any issues during the HTTP request or response parsing.
+     * - On first use for a test run, all pages of the run's tests are fetched through the 'get_tests' endpoint
+     *   and indexed by title.
+     * - Lookups are served from that index. The index is downloaded again only when a title is not found,
+     *   in case tests were added to the run after it was indexed, and at most once per 'testRail.indexRefreshSeconds'
+     *   (default 60). Until then titles that are not in the index are reported as not found right away.
      *
      * Notes:
      * - The method assumes valid authentication credentials (username and password) for TestRail access.
-     * - It uses the Apache HttpClient library for HTTP communications.
-     * - This method is useful in scenarios where test case details are required for updating results or fetching additional information from TestRail.
      * - Proper error handling ensures that default values (-1) are returned in case of failure, which can be used to detect and handle API communication issues.
      */
     public static Map<String, Integer> getTestCaseIdInTestRun( int currentTestRunId,  String testCaseTitle) {
-        String auth = Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
         if (currentTestRunId == -1) {
             throw new IllegalStateException("Test run ID is not set. Please create a test run first.");
         }
+        TestRailTest test = findIndexedTest(currentTestRunId, testCaseTitle);
+        Map<String, Integer> result = new HashMap<>();
+        result.put("testCaseId", test != null ? test.caseId : -1);
+        result.put("testRunId", test != null ? test.testId : -1);
+        return result;
+    }
+    /**
+     * Looks the title up in the index of the given run, refreshing the index when the run changed or the title is missing.
+     * A missing title is answered from the current index, without a refresh, until the index is older than
+     * 'testRail.indexRefreshSeconds', so tests without a TestRail case do not download the run again on every result.
+     */
+    private static TestRailTest findIndexedTest(int testRunId, String testCaseTitle) {
+        Map<String, TestRailTest> index = testIndex;
+        if (indexedTestRunId == testRunId) {
+            TestRailTest test = index.get(testCaseTitle);
+            if (test != null || !isIndexStale()) {
+                return test;
+            }
+        }
+        synchronized (TestRailAPI.class) {
+            // Another thread could have refreshed the index while this one was waiting
+            if (indexedTestRunId == testRunId && (testIndex != index || !isIndexStale())) {
+                return testIndex.get(testCaseTitle);
+            }
+            try {
+                testIndex = fetchTestsInTestRun(testRunId);
+                indexedTestRunId = testRunId;
+                log.info("Indexed {} tests of Test Run {}", testIndex.size(), testRunId);
+            } catch (Exception e) {
+                log.info("Error fetching tests of Test Run {}: {}", testRunId, e.getMessage());
+            }
+            // Also set after a failed download, so an unreachable TestRail is not asked again for every result
+            indexedAtNanos = System.nanoTime();
+            return indexedTestRunId == testRunId ? testIndex.get(testCaseTitle) : null;
+        }
+    }
 
-        String url = testRailUrl + "/index.php?/api/v2/get_tests/" + currentTestRunId;
-        int testCaseId = -1;
-        int testRunId = -1;
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet get = new HttpGet(url);
-            get.setHeader(HttpHeaders.AUTHORIZATION, "Basic " + auth);
-            get.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
-
-            try (CloseableHttpResponse response = client.execute(get)) {
-                String result = EntityUtils.toString(response.getEntity());
-                JSONObject responseObject = new JSONObject(result);
-                JSONArray tests = responseObject.getJSONArray("tests");
-                for (int i = 0; i < tests.length(); i++) {
-                    JSONObject test = tests.getJSONObject(i);
-                    if (test.getString("title").equals(testCaseTitle)) {
-                        testCaseId = test.getInt("case_id");
-                        testRunId = test.getInt("id");
-                        break;
-                    }
+    private static boolean isIndexStale() {
+        long refreshNanos = TimeUnit.SECONDS.toNanos(EnvironmentConfig.getLong("testRail.indexRefreshSeconds", 60));
+        return System.nanoTime() - indexedAtNanos >= refreshNanos;
+    }
+    /**
+     * Downloads all tests of a test run and indexes them by title.
+     * Follows the '_links.next' reference of paginated 'get_tests' responses, and also accepts the
+     * plain array returned by older TestRail versions.
+     */
+    private static Map<String, TestRailTest> fetchTestsInTestRun(int testRunId) throws IOException {
+        ensureConfigured();
+        Map<String, TestRailTest> index = new HashMap<>();
+        String url = testRailUrl + "/index.php?/api/v2/get_tests/" + testRunId;
+        while (url != null) {
+            ApiResponse response = execute(new HttpGet(url));
+            if (response.statusCode != 200) {
+                throw new IOException("Failed to get tests from TestRail. Status code: " + response.statusCode);
+            }
+            String nextPage = null;
+            JSONArray tests;
+            if (response.body.trim().startsWith("[")) {
+                tests = new JSONArray(response.body);
+            } else {
+                JSONObject responseObject = new JSONObject(response.body);
+                tests = responseObject.getJSONArray("tests");
+                JSONObject links = responseObject.optJSONObject("_links");
+                if (links != null && !links.isNull("next")) {
+                    nextPage = links.getString("next");
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            for (int i = 0; i < tests.length(); i++) {
+                JSONObject test = tests.getJSONObject(i);
+                // First occurrence wins, same as the previous linear search
+                index.putIfAbsent(test.getString("title"), new TestRailTest(test.getInt("case_id"), test.getInt("id")));
+            }
+            // '_links.next' is relative to the API root, e.g. "/api/v2/get_tests/1&limit=250&offset=250"
+            url = nextPage != null ? testRailUrl + "/index.php?" + nextPage : null;
         }
-        Map<String, Integer> result = new HashMap<>();
-        result.put("testCaseId", testCaseId);
-        result.put("testRunId", testRunId);
-        return result;
+        return index;
     }
     /**
      * Updates the test result for a specific test case in TestRail.
@@ -181,32 +254,392 @@ public class TestRailAPI {
      * - Proper error handling ensures that any failures during the update process are logged, and the program can handle such exceptions gracefully.
      */
     public void updateTestResult( int testRunId, int testCaseId, int statusId, String comment) {
-        String auth = Base64.getEncoder().encodeToString((username + ":" + password).getBytes());
+        ensureConfigured();
         String url = testRailUrl + "/index.php?/api/v2/add_result_for_case/" + testRunId + "/" + testCaseId;
-        try (CloseableHttpClient client = HttpClients.createDefault()){
+        try {
             HttpPost post = new HttpPost(url);
-            post.setHeader(HttpHeaders.AUTHORIZATION, "Basic " + auth);
-            post.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
 
             JSONObject body = new JSONObject();
             body.put("status_id", statusId); // Status ID as per TestRail documentation
             body.put("comment", comment);
 
-            StringEntity entity = new StringEntity(body.toString());
-            post.setEntity(entity);
+            post.setEntity(new StringEntity(body.toString(), StandardCharsets.UTF_8));
+
+            int statusCode = execute(post).statusCode;
+            if (statusCode != 200) {
+                throw new IOException("Failed to update TestRail. Status code: " + statusCode);
+            }
+        } catch (Exception e) {
+            log.error("Error updating result: {}", e.getMessage());
+        }
+    }
+    /**
+     * Reports the result of a test method to TestRail using the configured reporting mode.
+     *
+     * @param testRunId The ID of the test run in TestRail.
+     * @param testCaseTitle The title of the test case in the test run, usually the test method name.
+     * @param statusId The status ID representing the test result according to TestRail's status definitions.
+     * @param comment A comment or note to be attached to the test result in TestRail.
+     *
+     * Description:
+     * - 'testRail.reportMode=async' (default) hands the result over to TestRailReporter, which does the case lookup
+     *   and the submission on its own thread. The calling thread returns immediately.
+     * - 'testRail.reportMode=sync' looks the case up on the calling thread and buffers the result with queueTestResult.
+     * - Before either, the result is appended to the local TestRailJournal (unless 'testRail.journal=false'),
+     *   so results that never reach TestRail can be replayed later.
+     */
+    public static void reportTestResult(int testRunId, String testCaseTitle, int statusId, String comment) {
+        int attempt = 0;
+        TestRailJournal currentJournal = getJournal();
+        if (currentJournal != null) {
+            try {
+                attempt = currentJournal.append(testRunId, testCaseTitle, statusId, comment);
+            } catch (IOException e) {
+                log.error("Error writing result of {} to journal: {}", testCaseTitle, e.getMessage());
+            }
+        }
+        if (isAsyncReporting()) {
+            TestRailReporter.getInstance().enqueue(testRunId, testCaseTitle, statusId, comment, attempt);
+            return;
+        }
+        Map<String, Integer> testArtifacts = getTestCaseIdInTestRun(testRunId, testCaseTitle);
+        Integer testCaseId = testArtifacts.get("testCaseId");
+        log.info("The Test Run ID is: {}, CaseID is: {} and TestCaseRun ID is: {} with statusID: {}", testRunId,
+                testCaseId, testArtifacts.get("testRunId"), statusId);
+        queueTestResult(new TestRailResult(testRunId, testCaseId, statusId, comment, testCaseTitle, attempt));
+    }
+    /**
+     * Buffers a test result in memory instead of sending it to TestRail right away.
+     * Buffered results are sent in bulk once the configured batch size is reached, or at suite end through flushTestResults.
+     *
+     * @param testRunId The ID of the test run in TestRail to which the test case belongs.
+     * @param testCaseId The ID of the test case in the test run whose result is to be updated.
+     * @param statusId The status ID representing the test result according to TestRail's status definitions.
+     * @param comment A comment or note to be attached to the test result in TestRail.
+     *
+     * Notes:
+     * - Batch size is read from 'testRail.batchSize' property (default 25). Value 1 effectively disables batching.
+     */
+    public static void queueTestResult(int testRunId, int testCaseId, int statusId, String comment) {
+        queueTestResult(new TestRailResult(testRunId, testCaseId, statusId, comment));
+    }
 
-            try (CloseableHttpResponse response = client.execute(post)) {
-                HttpEntity responseEntity = response.getEntity();
-                String result = EntityUtils.toString(responseEntity);
-                int statusCode = response.getStatusLine().getStatusCode();
-                if (statusCode != 200) {
-                    throw new IOException("Failed to update TestRail. Status code: " + statusCode);
+    private static void queueTestResult(TestRailResult result) {
+        List<TestRailResult> batch = null;
+        synchronized (pendingResults) {
+            pendingResults.add(result);
+            if (pendingResults.size() >= getBatchSize()) {
+                batch = new ArrayList<>(pendingResults);
+                pendingResults.clear();
+            }
+        }
+        if (batch != null) {
+            List<TestRailResult> throttled = new ArrayList<>();
+            List<TestRailResult> retained = submitResults(batch, new ArrayList<>(), throttled);
+            for (TestRailResult throttledResult : throttled) {
+                log.error("Result was not delivered: {}", throttledResult);
+            }
+            synchronized (pendingResults) {
+                pendingResults.addAll(0, retained);
+            }
+        }
+    }
+    /**
+     * Sends all buffered results to TestRail. Intended to be called once at suite end.
+     *
+     * Description:
+     * - In async reporting mode it first waits for TestRailReporter to drain its queue, at most
+     *   'testRail.flushTimeoutSeconds' seconds (default 60).
+     * - Results that could not be delivered because of transient problems (timeouts, 5xx) are kept and
+     *   resubmitted on the next round, up to 'testRail.flushAttempts' rounds (default 3). Results still answered
+     *   with 429 after the retries in execute are not resubmitted, they stay unsent in the journal.
+     * - Results rejected by TestRail as invalid are logged and dropped, they would be rejected again on every retry.
+     * - Whatever is still undelivered after the last round is logged so it can be entered manually.
+     */
+    public static void flushTestResults() {
+        if (isAsyncReporting()) {
+            long timeoutSeconds = EnvironmentConfig.getLong("testRail.flushTimeoutSeconds", 60);
+            TestRailReporter.getInstance().flush(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        }
+        int attempts = EnvironmentConfig.getInt("testRail.flushAttempts", 3);
+        List<TestRailResult> batch;
+        synchronized (pendingResults) {
+            batch = new ArrayList<>(pendingResults);
+            pendingResults.clear();
+        }
+        List<TestRailResult> throttled = new ArrayList<>();
+        for (int attempt = 1; attempt <= attempts && !batch.isEmpty(); attempt++) {
+            batch = submitResults(batch, new ArrayList<>(), throttled);
+        }
+        batch.addAll(throttled);
+        for (TestRailResult result : batch) {
+            log.error("Result was not delivered: {}", result);
+        }
+    }
+    /**
+     * Groups results by test run and sends them in chunks of the configured batch size.
+     *
+     * @param results Results to be sent.
+     * @param rejected Collects results refused by TestRail as invalid. These are not retried.
+     * @param throttled Collects results still answered with 429 after the retries in execute. Resubmitting them
+     *                  would only add another retry layer on top of execute, they stay unsent in the journal.
+     * @return Results that were not delivered because of transient failures and should be resubmitted.
+     */
+    static List<TestRailResult> submitResults(List<TestRailResult> results, List<TestRailResult> rejected,
+                                              List<TestRailResult> throttled) {
+        Map<Integer, List<TestRailResult>> resultsByRun = new LinkedHashMap<>();
+        for (TestRailResult result : results) {
+            resultsByRun.computeIfAbsent(result.getTestRunId(), k -> new ArrayList<>()).add(result);
+        }
+        int batchSize = getBatchSize();
+        List<TestRailResult> retained = new ArrayList<>();
+        for (Map.Entry<Integer, List<TestRailResult>> entry : resultsByRun.entrySet()) {
+            List<TestRailResult> runResults = entry.getValue();
+            for (int from = 0; from < runResults.size(); from += batchSize) {
+                List<TestRailResult> chunk = runResults.subList(from, Math.min(from + batchSize, runResults.size()));
+                retained.addAll(submitChunk(entry.getKey(), chunk, rejected, throttled));
+            }
+        }
+        List<TestRailResult> notSent = new ArrayList<>(retained);
+        notSent.addAll(throttled);
+        markInJournal(results, notSent, rejected);
+        return retained;
+    }
+    /**
+     * Records in the journal which of the journaled results were delivered and which were rejected.
+     * Retained and throttled results stay unsent, so they are picked up by a later replay if they never get through.
+     */
+    private static void markInJournal(List<TestRailResult> results, List<TestRailResult> unsent, List<TestRailResult> rejected) {
+        TestRailJournal currentJournal = getJournal();
+        if (currentJournal == null) {
+            return;
+        }
+        Set<TestRailResult> notSent = Collections.newSetFromMap(new IdentityHashMap<>());
+        notSent.addAll(unsent);
+        Set<TestRailResult> refused = Collections.newSetFromMap(new IdentityHashMap<>());
+        refused.addAll(rejected);
+        try {
+            for (TestRailResult result : results) {
+                if (result.getAttempt() == 0 || notSent.contains(result)) {
+                    continue;
+                }
+                if (refused.contains(result)) {
+                    currentJournal.markRejected(result);
+                } else {
+                    currentJournal.markSent(result);
                 }
             }
+        } catch (IOException e) {
+            log.error("Error marking results in journal: {}", e.getMessage());
+        }
+    }
+    /**
+     * Journal results are written to, opened from 'testRail.journalFile' on first use.
+     * Returns null when journaling is disabled with 'testRail.journal=false' or the file cannot be opened.
+     */
+    static synchronized TestRailJournal getJournal() {
+        if (!journalOpened) {
+            journalOpened = true;
+            if (EnvironmentConfig.getBoolean("testRail.journal", true)) {
+                try {
+                    journal = TestRailJournal.open(TestRailJournal.getDefaultFile());
+                } catch (IOException e) {
+                    log.error("Journal is disabled, it could not be opened: {}", e.getMessage());
+                }
+            }
+        }
+        return journal;
+    }
+    /**
+     * Replaces the journal results are marked in, used when replaying a specific journal file.
+     *
+     * @return The journal that was used before.
+     */
+    static synchronized TestRailJournal useJournal(TestRailJournal replacement) {
+        TestRailJournal previous = journal;
+        journal = replacement;
+        journalOpened = true;
+        return previous;
+    }
+    /**
+     * Sends one chunk of results and isolates the entries TestRail refuses.
+     *
+     * Description:
+     * - 'add_results_for_cases' is all-or-nothing: one invalid entry (e.g. a case that is not part of the run)
+     *   makes TestRail answer 400 for the whole chunk. In that case the chunk is split in halves and each half
+     *   is resubmitted, so valid entries are still delivered and only the rejected ones are dropped.
+     * - On transient failures the whole chunk is returned so it can be resubmitted later.
+     * - A 429 is returned by execute only after its own retries, the chunk is then collected as throttled.
+     */
+    private static List<TestRailResult> submitChunk(int testRunId, List<TestRailResult> chunk, List<TestRailResult> rejected,
+                                                    List<TestRailResult> throttled) {
+        int statusCode = addResultsForCases(testRunId, chunk);
+        if (statusCode == 200) {
+            return new ArrayList<>();
+        }
+        if (statusCode == 429) {
+            log.error("Batch of {} results is still rate limited after retries", chunk.size());
+            throttled.addAll(chunk);
+            return new ArrayList<>();
+        }
+        if (statusCode == 400 || statusCode == 403) {
+            if (chunk.size() == 1) {
+                log.error("Result rejected with status code {}: {}", statusCode, chunk.get(0));
+                rejected.add(chunk.get(0));
+                return new ArrayList<>();
+            }
+            int middle = chunk.size() / 2;
+            List<TestRailResult> retained = submitChunk(testRunId, chunk.subList(0, middle), rejected, throttled);
+            retained.addAll(submitChunk(testRunId, chunk.subList(middle, chunk.size()), rejected, throttled));
+            return retained;
+        }
+        log.info("Batch of {} results will be resubmitted, status code: {}", chunk.size(), statusCode);
+        return new ArrayList<>(chunk);
+    }
+    /**
+     * Sends a list of results for one test run through the TestRail 'add_results_for_cases' endpoint.
+     *
+     * @param testRunId The ID of the test run in TestRail to which all results belong.
+     * @param results The results to be sent in a single request.
+     * @return HTTP status code of the response, or -1 if the request could not be executed.
+     */
+    static int addResultsForCases(int testRunId, List<TestRailResult> results) {
+        ensureConfigured();
+        String url = testRailUrl + "/index.php?/api/v2/add_results_for_cases/" + testRunId;
+        try {
+            HttpPost post = new HttpPost(url);
+
+            JSONArray entries = new JSONArray();
+            for (TestRailResult result : results) {
+                entries.put(result.toJson());
+            }
+            JSONObject body = new JSONObject();
+            body.put("results", entries);
+            post.setEntity(new StringEntity(body.toString(), StandardCharsets.UTF_8));
+
+            return execute(post).statusCode;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.info("Error sending results: {}", e.getMessage());
+            return -1;
         }
     }
+    /**
+     * Executes a request against the TestRail API through the shared client.
+     *
+     * Description:
+     * - Authorization and content type headers are added here, the encoded credentials are computed once in configure.
+     * - Every request first takes a token from the shared rate limiter ('testRail.requestsPerMinute', default 180,
+     *   matching TestRail Cloud's limit).
+     * - When TestRail answers 429, all requests are paused for the time given in 'Retry-After' and the request is
+     *   repeated, at most 'testRail.maxRetries' times. The last 429 response is returned to the caller.
+     * - Every attempt is recorded as a JFR HTTP call event, see FrameworkEvents.
+     *
+     * @return Status code and body of the response.
+     */
+    private static ApiResponse execute(HttpRequestBase request) throws IOException {
+        int maxRetries = EnvironmentConfig.getInt("testRail.maxRetries", 5);
+        request.setHeader(HttpHeaders.AUTHORIZATION, authHeader);
+        request.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+        for (int attempt = 0; ; attempt++) {
+            try {
+                getRateLimiter().acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for TestRail rate limit", e);
+            }
+            FrameworkEvents.HttpCall event = new FrameworkEvents.HttpCall();
+            event.begin();
+            int statusCode = 0;
+            try (CloseableHttpResponse response = getClient().execute(request)) {
+                statusCode = response.getStatusLine().getStatusCode();
+                HttpEntity entity = response.getEntity();
+                String body = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "";
+                if (statusCode == 429) {
+                    long delay = getRetryAfterMillis(response);
+                    getRateLimiter().pauseFor(delay);
+                    if (attempt < maxRetries) {
+                        log.info("Rate limit reached, retrying in {} ms", delay);
+                        continue;
+                    }
+                }
+                return new ApiResponse(statusCode, body);
+            } finally {
+                FrameworkEvents.commitHttpCall(event, "TestRail", request.getMethod(), request.getURI().toString(), statusCode);
+            }
+        }
+    }
+    /** Reads 'Retry-After' header, given either in seconds or as HTTP date. Defaults to 60 seconds. */
+    private static long getRetryAfterMillis(HttpResponse response) {
+        Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            String value = retryAfter.getValue().trim();
+            if (value.matches("\\d+")) {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+            }
+            Date date = DateUtils.parseDate(value);
+            if (date != null) {
+                return Math.max(0, date.getTime() - System.currentTimeMillis());
+            }
+        }
+        return TimeUnit.SECONDS.toMillis(60);
+    }
+
+    private static synchronized CloseableHttpClient getClient() {
+        if (client == null) {
+            int maxConnections = EnvironmentConfig.getInt("testRail.maxConnections", 4);
+            int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(EnvironmentConfig.getLong("testRail.timeoutSeconds", 30));
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(maxConnections);
+            connectionManager.setDefaultMaxPerRoute(maxConnections);
+            client = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectTimeout(timeoutMillis)
+                            .setSocketTimeout(timeoutMillis)
+                            .build())
+                    .build();
+        }
+        return client;
+    }
+
+    private static synchronized TestRailRateLimiter getRateLimiter() {
+        if (rateLimiter == null) {
+            int requestsPerMinute = EnvironmentConfig.getInt("testRail.requestsPerMinute", 180);
+            rateLimiter = new TestRailRateLimiter(requestsPerMinute, Math.max(1, requestsPerMinute / 6));
+        }
+        return rateLimiter;
+    }
+    /**
+     * Closes the shared HTTP client and its pooled connections, and the journal. A new client is created if TestRail is used again.
+     */
+    public static synchronized void close() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.info("Error closing journal: {}", e.getMessage());
+            }
+            journal = null;
+            journalOpened = false;
+        }
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.info("Error closing HTTP client: {}", e.getMessage());
+            }
+            client = null;
+        }
+    }
+
+    private static boolean isAsyncReporting() {
+        return "async".equalsIgnoreCase(getProperty("testRail.reportMode", "async"));
+    }
+
+    private static int getBatchSize() {
+        return Math.max(1, EnvironmentConfig.getInt("testRail.batchSize", 25));
+    }
     /**
      * - The method uses a switch statement to map TestNG result status codes to TestRail status IDs.
      * - TestNG statuses like SUCCESS and FAILURE are translated to their respective TestRail counterparts.
@@ -215,7 +648,7 @@ public class TestRailAPI {
      * @param testNGStatus The status code from TestNG, representing the outcome of a test (e.g., success, failure).
      * @return The corresponding status ID for TestRail.
      */
-    int mapTestNGResultToTestRailStatus(int testNGStatus) {
+    static int mapTestNGResultToTestRailStatus(int testNGStatus) {
         // Map TestNG status to TestRail status ID
         switch (testNGStatus) {
             case ITestResult.SUCCESS:
@@ -227,5 +660,25 @@ public class TestRailAPI {
         }
     }
 
+    /** Status code and body of a TestRail API response */
+    private static final class ApiResponse {
+        private final int statusCode;
+        private final String body;
 
-}
\ No newline at end of file
+        private ApiResponse(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+
+    /** Case ID and test ID of a single test in a TestRail run */
+    private static final class TestRailTest {
+        private final int caseId;
+        private final int testId;
+
+        private TestRailTest(int caseId, int testId) {
+            this.caseId = caseId;
+            this.testId = testId;
+        }
+    }
+}
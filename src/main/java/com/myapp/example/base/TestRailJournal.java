@@ -0,0 +1,293 @@
+package com.myapp.example.base;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local append-only journal of TestRail results, so no result is lost when TestRail is slow or down.
+ *
+ * Description:
+ * - Every result is appended as a JSON line before it is handed over for sending. Delivered and rejected
+ *   results get a second line marking them as done.
+ * - A result is identified by test run ID, case title and attempt. Attempt counts repeated results of the
+ *   same case in the same run (e.g. retried test methods), so replay never merges or duplicates them.
+ * - Writes are forced to disk in batches: after 'testRail.journalSyncEvery' entries (default 20) or
+ *   'testRail.journalSyncMillis' milliseconds (default 200), whichever comes first.
+ * - Results without a done marker are uploaded later by replay. Replay is idempotent: running it again
+ *   after a successful upload sends nothing.
+ *
+ * Usage:
+ * - Replay from command line: mvn compile exec:java -Dexec.mainClass=com.myapp.example.base.TestRailJournal
+ *   -Dexec.args="path/to/results.jsonl" -DtestRail.url=... -DtestRail.username=... -DtestRail.password=...
+ */
+public class TestRailJournal implements Closeable {
+
+    private static final Logger log = LogManager.getLogger("TestRail");
+
+    private static final String TYPE_RESULT = "result";
+    private static final String TYPE_SENT = "sent";
+    private static final String TYPE_REJECTED = "rejected";
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int syncEvery;
+    private final ScheduledExecutorService syncer;
+
+    private int unsynced;
+    // Highest attempt per run and case title
+    private final Map<String, Integer> lastAttempts = new HashMap<>();
+    // Keys of results that were delivered or rejected
+    private final Set<String> completed = new HashSet<>();
+
+    private TestRailJournal(Path file, int syncEvery, long syncMillis) throws IOException {
+        this.file = file;
+        this.syncEvery = Math.max(1, syncEvery);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        readExisting();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "testrail-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.syncer.scheduleWithFixedDelay(this::syncQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Opens the journal at the given path, creating it if needed, with sync settings from configuration */
+    public static TestRailJournal open(Path file) throws IOException {
+        return new TestRailJournal(file,
+                EnvironmentConfig.getInt("testRail.journalSyncEvery", 20),
+                EnvironmentConfig.getLong("testRail.journalSyncMillis", 200));
+    }
+
+    /** Journal file configured by 'testRail.journalFile' (default testrail-journal/results.jsonl) */
+    public static Path getDefaultFile() {
+        return Paths.get(EnvironmentConfig.getProperty("testRail.journalFile", "testrail-journal/results.jsonl"));
+    }
+
+    /**
+     * Appends a result to the journal.
+     *
+     * @return Attempt number assigned to the result, starting at 1 for every run and case title.
+     */
+    public synchronized int append(int testRunId, String testCaseTitle, int statusId, String comment) throws IOException {
+        String runAndCase = testRunId + "/" + testCaseTitle;
+        int attempt = lastAttempts.merge(runAndCase, 1, Integer::sum);
+
+        JSONObject entry = new JSONObject();
+        entry.put("type", TYPE_RESULT);
+        entry.put("run", testRunId);
+        entry.put("case", testCaseTitle);
+        entry.put("attempt", attempt);
+        entry.put("status", statusId);
+        entry.put("comment", comment);
+        entry.put("time", System.currentTimeMillis());
+        write(entry);
+        return attempt;
+    }
+
+    /** Marks a journaled result as delivered to TestRail */
+    public synchronized void markSent(TestRailResult result) throws IOException {
+        mark(TYPE_SENT, result);
+    }
+
+    /** Marks a journaled result as refused by TestRail, so it is not replayed again */
+    public synchronized void markRejected(TestRailResult result) throws IOException {
+        mark(TYPE_REJECTED, result);
+    }
+
+    /**
+     * Reads all results from the journal that have neither been delivered nor rejected.
+     * Case IDs are not stored in the journal, the returned results carry -1 and the case title.
+     */
+    public synchronized List<TestRailResult> getUnsentResults() throws IOException {
+        sync();
+        Map<String, TestRailResult> unsent = new LinkedHashMap<>();
+        Set<String> done = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JSONObject entry = parse(line);
+                if (entry == null) {
+                    continue;
+                }
+                String key = key(entry.getInt("run"), entry.getString("case"), entry.getInt("attempt"));
+                if (TYPE_RESULT.equals(entry.getString("type"))) {
+                    unsent.putIfAbsent(key, new TestRailResult(entry.getInt("run"), -1, entry.getInt("status"),
+                            entry.optString("comment", ""), entry.getString("case"), entry.getInt("attempt")));
+                } else {
+                    done.add(key);
+                }
+            }
+        }
+        unsent.keySet().removeAll(done);
+        return new ArrayList<>(unsent.values());
+    }
+
+    /**
+     * Uploads all unsent results from the journal to TestRail.
+     *
+     * Description:
+     * - Case IDs are resolved from the case titles of each run.
+     * - Results whose case is not found stay unsent, so they can be replayed after the run is fixed in TestRail.
+     * - Transient failures are retried 'testRail.flushAttempts' rounds (default 3), anything left stays unsent.
+     *
+     * @return Number of results that are still unsent after the replay.
+     */
+    public int replay() throws IOException {
+        List<TestRailResult> results = new ArrayList<>();
+        int unresolved = 0;
+        for (TestRailResult result : getUnsentResults()) {
+            int testCaseId = TestRailAPI.getTestCaseIdInTestRun(result.getTestRunId(), result.getTestCaseTitle()).get("testCaseId");
+            if (testCaseId == -1) {
+                log.error("Case {} was not found in Test Run {}", result.getTestCaseTitle(), result.getTestRunId());
+                unresolved++;
+                continue;
+            }
+            results.add(new TestRailResult(result.getTestRunId(), testCaseId, result.getStatusId(), result.getComment(),
+                    result.getTestCaseTitle(), result.getAttempt()));
+        }
+        log.info("Replaying {} results from {}", results.size(), file);
+
+        int attempts = EnvironmentConfig.getInt("testRail.flushAttempts", 3);
+        List<TestRailResult> throttled = new ArrayList<>();
+        TestRailJournal previous = TestRailAPI.useJournal(this);
+        try {
+            for (int attempt = 1; attempt <= attempts && !results.isEmpty(); attempt++) {
+                results = TestRailAPI.submitResults(results, new ArrayList<>(), throttled);
+            }
+        } finally {
+            TestRailAPI.useJournal(previous);
+        }
+        sync();
+        return results.size() + throttled.size() + unresolved;
+    }
+
+    /** Forces all appended entries to disk */
+    public synchronized void sync() throws IOException {
+        if (unsynced > 0) {
+            channel.force(false);
+            unsynced = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        syncer.shutdownNow();
+        sync();
+        channel.close();
+    }
+
+    /**
+     * Replays the journal given as first argument, or the configured one.
+     * Exits with status 1 if some results are still unsent.
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = args.length > 0 ? Paths.get(args[0]) : getDefaultFile();
+        int remaining;
+        try (TestRailJournal journal = open(path)) {
+            remaining = journal.replay();
+        } finally {
+            TestRailAPI.close();
+        }
+        log.info("Replay finished, {} results still unsent", remaining);
+        System.exit(remaining == 0 ? 0 : 1);
+    }
+
+    private void mark(String type, TestRailResult result) throws IOException {
+        String key = key(result.getTestRunId(), result.getTestCaseTitle(), result.getAttempt());
+        if (!completed.add(key)) {
+            return;
+        }
+        JSONObject entry = new JSONObject();
+        entry.put("type", type);
+        entry.put("run", result.getTestRunId());
+        entry.put("case", result.getTestCaseTitle());
+        entry.put("attempt", result.getAttempt());
+        write(entry);
+    }
+
+    private void write(JSONObject entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((entry.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (++unsynced >= syncEvery) {
+            sync();
+        }
+    }
+
+    private synchronized void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            log.error("Error syncing journal {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** Restores attempt counters and done markers, so a reopened journal continues where it stopped */
+    private void readExisting() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JSONObject entry = parse(line);
+                if (entry == null) {
+                    continue;
+                }
+                int testRunId = entry.getInt("run");
+                String testCaseTitle = entry.getString("case");
+                int attempt = entry.getInt("attempt");
+                if (TYPE_RESULT.equals(entry.getString("type"))) {
+                    lastAttempts.merge(testRunId + "/" + testCaseTitle, attempt, Math::max);
+                } else {
+                    completed.add(key(testRunId, testCaseTitle, attempt));
+                }
+            }
+        }
+    }
+
+    /** Parses one journal line. A line cut off by a crash is skipped instead of failing the whole journal. */
+    private JSONObject parse(String line) {
+        if (line.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new JSONObject(line);
+        } catch (JSONException e) {
+            log.error("Skipping damaged journal entry in {}: {}", file, line);
+            return null;
+        }
+    }
+
+    private static String key(int testRunId, String testCaseTitle, int attempt) {
+        return testRunId + "/" + testCaseTitle + "/" + attempt;
+    }
+}
@@ -0,0 +1,62 @@
+package com.myapp.example.base;
+
+/**
+ * Token bucket limiting the rate of requests sent to TestRail.
+ *
+ * Description:
+ * - The bucket holds at most 'capacity' tokens and is refilled evenly, 'requestsPerMinute' tokens per minute.
+ *   Every request takes one token, callers wait while the bucket is empty.
+ * - TestRail answers 429 with a 'Retry-After' header when its own limit is hit. pauseFor blocks all callers
+ *   for that time, regardless of the tokens left in the bucket.
+ *
+ * Notes:
+ * - TestRail Cloud allows 180 requests per minute per instance, which is the default in TestRailAPI.
+ */
+public class TestRailRateLimiter {
+
+    private final int capacity;
+    private final double tokensPerMilli;
+
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    public TestRailRateLimiter(int requestsPerMinute, int capacity) {
+        if (requestsPerMinute <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Request rate and bucket capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.tokensPerMilli = requestsPerMinute / 60_000.0;
+        this.tokens = capacity;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    /** Takes one token, waiting until one is available and any pause requested by the server is over */
+    public synchronized void acquire() throws InterruptedException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            refill(now);
+            long waitMillis;
+            if (now < pausedUntil) {
+                waitMillis = pausedUntil - now;
+            } else if (tokens >= 1) {
+                tokens -= 1;
+                return;
+            } else {
+                waitMillis = (long) Math.ceil((1 - tokens) / tokensPerMilli);
+            }
+            wait(Math.max(1, waitMillis));
+        }
+    }
+
+    /** Blocks all callers for the given time, used when TestRail answers with 'Retry-After' */
+    public synchronized void pauseFor(long millis) {
+        pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + millis);
+        tokens = 0;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+        lastRefill = now;
+    }
+}
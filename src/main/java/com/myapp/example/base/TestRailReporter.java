@@ -0,0 +1,235 @@
+package com.myapp.example.base;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends TestRail results from a dedicated background thread, so TestRail I/O never runs on the test thread.
+ *
+ * Description:
+ * - Test threads only put results into a bounded queue. If the queue is full the result is dropped and counted
+ *   as failed, the test thread is never blocked. Dropped results stay unsent in TestRailJournal and can be replayed.
+ * - The sender thread resolves TestRail case IDs, groups queued results into batches and submits them through TestRailAPI.
+ * - Batches that fail with 5xx or I/O errors are retried with exponential backoff. Rate limiting (429) is handled
+ *   once, by TestRailAPI waiting for 'Retry-After'. Results still throttled after that are counted as failed.
+ * - At suite end flush waits for the queue to drain, but not longer than the given deadline.
+ *
+ * Configuration (config.properties or system properties):
+ * - testRail.queueCapacity - maximum number of results waiting in the queue (default 1000)
+ * - testRail.maxRetries - retries of a batch failed with 5xx or I/O errors before its results are counted as failed (default 5)
+ * - testRail.retryBackoffMillis - delay before the first retry, doubled on every next retry (default 1000)
+ */
+public class TestRailReporter {
+
+    private static final Logger log = LogManager.getLogger("TestRail");
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private static TestRailReporter instance;
+
+    private final BlockingQueue<QueuedResult> queue;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final Thread sender;
+
+    // Results accepted into the queue that were not yet sent or given up on
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    // Results of the current batch already counted as sent or failed, used only by the sender thread
+    private int accounted;
+
+    private TestRailReporter() {
+        this.queue = new ArrayBlockingQueue<>(EnvironmentConfig.getInt("testRail.queueCapacity", 1000));
+        this.maxRetries = EnvironmentConfig.getInt("testRail.maxRetries", 5);
+        this.retryBackoffMillis = EnvironmentConfig.getLong("testRail.retryBackoffMillis", 1000);
+        this.sender = new Thread(this::sendLoop, "testrail-reporter");
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    /** Reporter shared by the whole suite. The sender thread is started on first use. */
+    public static synchronized TestRailReporter getInstance() {
+        if (instance == null) {
+            instance = new TestRailReporter();
+        }
+        return instance;
+    }
+
+    /**
+     * Puts a result into the queue without waiting.
+     *
+     * @param testRunId The ID of the test run in TestRail.
+     * @param testCaseTitle The title of the test case, resolved to a case ID on the sender thread.
+     * @param statusId The TestRail status ID of the result.
+     * @param comment A comment to be attached to the result.
+     * @param attempt Attempt number assigned by TestRailJournal, 0 if the result was not journaled.
+     * @return true if the result was queued, false if the queue was full and the result was dropped.
+     */
+    public boolean enqueue(int testRunId, String testCaseTitle, int statusId, String comment, int attempt) {
+        pending.incrementAndGet();
+        if (queue.offer(new QueuedResult(testRunId, testCaseTitle, statusId, comment, attempt))) {
+            queued.incrementAndGet();
+            return true;
+        }
+        failed.incrementAndGet();
+        completed(1);
+        log.error("Queue is full, result of {} was dropped", testCaseTitle);
+        return false;
+    }
+
+    /**
+     * Waits until all queued results are sent or given up on, but not longer than the given deadline.
+     *
+     * @param timeoutMillis Maximum time to wait in milliseconds.
+     * @return true if the queue was fully drained, false if the deadline passed first.
+     */
+    public boolean flush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    log.error("Flush deadline passed with {} results not sent. {}", pending.get(), getMetrics());
+                    return false;
+                }
+                try {
+                    pending.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        log.info("Reporter flushed. {}", getMetrics());
+        return true;
+    }
+
+    /** Number of results currently waiting in the queue */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /** Summary of reporter counters, suitable for logging */
+    public String getMetrics() {
+        return "Queued: " + queued.get() + ", sent: " + sent.get() + ", failed: " + failed.get()
+                + ", waiting: " + queue.size();
+    }
+
+    private void sendLoop() {
+        int batchSize = Math.max(1, EnvironmentConfig.getInt("testRail.batchSize", 25));
+        List<QueuedResult> batch = new ArrayList<>();
+        while (true) {
+            try {
+                QueuedResult first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // Sender thread must survive anything a single batch throws
+                log.error("Error sending results: {}", e.getMessage());
+                failed.addAndGet(batch.size() - accounted);
+            } finally {
+                completed(batch.size());
+                batch.clear();
+                accounted = 0;
+            }
+        }
+    }
+
+    /** Resolves case IDs and submits one batch, retrying 5xx and I/O failures with exponential backoff */
+    private void send(List<QueuedResult> batch) throws InterruptedException {
+        List<TestRailResult> results = new ArrayList<>();
+        for (QueuedResult queuedResult : batch) {
+            Map<String, Integer> testArtifacts = TestRailAPI.getTestCaseIdInTestRun(queuedResult.testRunId, queuedResult.testCaseTitle);
+            int testCaseId = testArtifacts.get("testCaseId");
+            if (testCaseId == -1) {
+                log.error("Case {} was not found in Test Run {}", queuedResult.testCaseTitle, queuedResult.testRunId);
+                countFailed(1);
+                continue;
+            }
+            results.add(new TestRailResult(queuedResult.testRunId, testCaseId, queuedResult.statusId, queuedResult.comment,
+                    queuedResult.testCaseTitle, queuedResult.attempt));
+        }
+
+        long backoff = retryBackoffMillis;
+        for (int attempt = 0; !results.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                if (attempt > maxRetries) {
+                    log.error("Giving up on {} results after {} retries", results.size(), maxRetries);
+                    countFailed(results.size());
+                    return;
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+            List<TestRailResult> rejected = new ArrayList<>();
+            List<TestRailResult> throttled = new ArrayList<>();
+            List<TestRailResult> retained = TestRailAPI.submitResults(results, rejected, throttled);
+            countFailed(rejected.size() + throttled.size());
+            int delivered = results.size() - retained.size() - rejected.size() - throttled.size();
+            sent.addAndGet(delivered);
+            accounted += delivered;
+            results = retained;
+        }
+    }
+
+    private void countFailed(int count) {
+        failed.addAndGet(count);
+        accounted += count;
+    }
+
+    private void completed(int count) {
+        if (count == 0) {
+            return;
+        }
+        synchronized (pending) {
+            if (pending.addAndGet(-count) <= 0) {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    /** Result as handed over by the test thread, before its case ID is known */
+    private static final class QueuedResult {
+        private final int testRunId;
+        private final String testCaseTitle;
+        private final int statusId;
+        private final String comment;
+        private final int attempt;
+
+        private QueuedResult(int testRunId, String testCaseTitle, int statusId, String comment, int attempt) {
+            this.testRunId = testRunId;
+            this.testCaseTitle = testCaseTitle;
+            this.statusId = statusId;
+            this.comment = comment;
+            this.attempt = attempt;
+        }
+    }
+}
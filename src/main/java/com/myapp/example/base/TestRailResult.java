@@ -0,0 +1,69 @@
+package com.myapp.example.base;
+
+import org.json.JSONObject;
+
+/**
+ * Single test result waiting to be submitted to TestRail.
+ * Instances are buffered by TestRailAPI and sent in bulk through the 'add_results_for_cases' endpoint.
+ */
+public class TestRailResult {
+
+    private final int testRunId;
+    private final int testCaseId;
+    private final int statusId;
+    private final String comment;
+    // Identify the result in TestRailJournal. Attempt 0 means the result was not journaled.
+    private final String testCaseTitle;
+    private final int attempt;
+
+    public TestRailResult(int testRunId, int testCaseId, int statusId, String comment) {
+        this(testRunId, testCaseId, statusId, comment, null, 0);
+    }
+
+    public TestRailResult(int testRunId, int testCaseId, int statusId, String comment, String testCaseTitle, int attempt) {
+        this.testRunId = testRunId;
+        this.testCaseId = testCaseId;
+        this.statusId = statusId;
+        this.comment = comment;
+        this.testCaseTitle = testCaseTitle;
+        this.attempt = attempt;
+    }
+
+    public int getTestRunId() {
+        return testRunId;
+    }
+
+    public int getTestCaseId() {
+        return testCaseId;
+    }
+
+    public int getStatusId() {
+        return statusId;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public String getTestCaseTitle() {
+        return testCaseTitle;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /** JSON entry as expected inside the 'results' array of 'add_results_for_cases' */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("case_id", testCaseId);
+        json.put("status_id", statusId);
+        json.put("comment", comment);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return "run " + testRunId + " / case " + testCaseId + " / status " + statusId;
+    }
+}
@@ -0,0 +1,196 @@
+package com.myapp.example.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Combines testng-results.xml files of several shards (see DataShard) into one report.
+ *
+ * Description:
+ * - Totals of the root element (total, passed, failed, skipped, ignored) are summed.
+ * - Suites with the same name are merged into one suite holding the tests of all shards. Suite duration is the
+ *   longest shard duration, since shards run side by side.
+ * - Inputs can be result files or directories, which are searched for testng-results.xml files.
+ *
+ * Usage:
+ * - mvn compile exec:java -Dexec.mainClass=com.myapp.example.base.TestResultsMerger
+ *   -Dexec.args="target/merged/testng-results.xml shard-0/test-output shard-1/test-output"
+ */
+public class TestResultsMerger {
+
+	private static final Logger log = LogManager.getLogger("TestResultsMerger");
+
+	private static final String RESULTS_FILE = "testng-results.xml";
+	private static final String[] COUNTERS = { "total", "passed", "failed", "skipped", "ignored" };
+
+	/**
+	 * Merges the given result files into a new document.
+	 *
+	 * @param resultFiles testng-results.xml files to merge, in shard order.
+	 * @return Merged document with the same structure as a single testng-results.xml.
+	 */
+	public static Document merge(List<Path> resultFiles) throws IOException {
+		DocumentBuilder builder = newBuilder();
+		Document merged = builder.newDocument();
+		Element root = merged.createElement("testng-results");
+		merged.appendChild(root);
+		long[] totals = new long[COUNTERS.length];
+		Element reporterOutput = merged.createElement("reporter-output");
+		root.appendChild(reporterOutput);
+		Map<String, Element> suites = new LinkedHashMap<>();
+
+		for (Path resultFile : resultFiles) {
+			Document shard;
+			try {
+				shard = builder.parse(resultFile.toFile());
+			} catch (SAXException e) {
+				throw new IOException("Could not parse " + resultFile + ": " + e.getMessage(), e);
+			}
+			Element shardRoot = shard.getDocumentElement();
+			for (int i = 0; i < COUNTERS.length; i++) {
+				String value = shardRoot.getAttribute(COUNTERS[i]);
+				totals[i] += value.isEmpty() ? 0 : Long.parseLong(value);
+			}
+			for (Element child : children(shardRoot)) {
+				if ("reporter-output".equals(child.getTagName())) {
+					for (Element line : children(child)) {
+						reporterOutput.appendChild(merged.importNode(line, true));
+					}
+				} else if ("suite".equals(child.getTagName())) {
+					mergeSuite(merged, root, suites, child);
+				}
+			}
+		}
+		for (int i = 0; i < COUNTERS.length; i++) {
+			root.setAttribute(COUNTERS[i], String.valueOf(totals[i]));
+		}
+		log.info("Merged {} result files: total {}, passed {}, failed {}, skipped {}", resultFiles.size(), totals[0], totals[1],
+				totals[2], totals[3]);
+		return merged;
+	}
+
+	/** Finds testng-results.xml files in the given files and directories */
+	public static List<Path> findResultFiles(List<String> inputs) throws IOException {
+		List<Path> resultFiles = new ArrayList<>();
+		for (String input : inputs) {
+			Path path = Paths.get(input);
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> files = Files.walk(path)) {
+					resultFiles.addAll(files.filter(file -> file.getFileName().toString().equals(RESULTS_FILE))
+							.sorted().collect(Collectors.toList()));
+				}
+			} else {
+				resultFiles.add(path);
+			}
+		}
+		return resultFiles;
+	}
+
+	public static void write(Document document, Path target) throws IOException {
+		if (target.getParent() != null) {
+			Files.createDirectories(target.getParent());
+		}
+		try {
+			Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+			transformer.transform(new DOMSource(document), new StreamResult(target.toFile()));
+		} catch (TransformerException e) {
+			throw new IOException("Could not write " + target + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Merges shard results. First argument is the merged file to write, the rest are result files or directories.
+	 * Exits with status 1 if the merged results contain failures.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: TestResultsMerger <merged testng-results.xml> <results file or directory>...");
+			System.exit(2);
+		}
+		List<String> inputs = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) {
+			inputs.add(args[i]);
+		}
+		List<Path> resultFiles = findResultFiles(inputs);
+		if (resultFiles.isEmpty()) {
+			throw new IOException("No " + RESULTS_FILE + " found in " + inputs);
+		}
+		Document merged = merge(resultFiles);
+		write(merged, Paths.get(args[0]));
+		log.info("Merged results written to {}", new File(args[0]).getAbsolutePath());
+		System.exit("0".equals(merged.getDocumentElement().getAttribute("failed")) ? 0 : 1);
+	}
+
+	private static void mergeSuite(Document merged, Element root, Map<String, Element> suites, Element suite) {
+		String name = suite.getAttribute("name");
+		Element existing = suites.get(name);
+		if (existing == null) {
+			Element imported = (Element) merged.importNode(suite, true);
+			root.appendChild(imported);
+			suites.put(name, imported);
+			return;
+		}
+		for (Element child : children(suite)) {
+			if ("test".equals(child.getTagName())) {
+				existing.appendChild(merged.importNode(child, true));
+			}
+		}
+		long duration = parseLong(existing.getAttribute("duration-ms"));
+		long shardDuration = parseLong(suite.getAttribute("duration-ms"));
+		existing.setAttribute("duration-ms", String.valueOf(Math.max(duration, shardDuration)));
+	}
+
+	private static List<Element> children(Element parent) {
+		List<Element> elements = new ArrayList<>();
+		NodeList nodes = parent.getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			if (nodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+				elements.add((Element) nodes.item(i));
+			}
+		}
+		return elements;
+	}
+
+	private static long parseLong(String value) {
+		return value.isEmpty() ? 0 : Long.parseLong(value);
+	}
+
+	private static DocumentBuilder newBuilder() throws IOException {
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			return factory.newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			throw new IOException("XML parser is not available: " + e.getMessage(), e);
+		}
+	}
+}
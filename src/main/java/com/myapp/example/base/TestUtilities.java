@@ -2,9 +2,8 @@ package com.myapp.example.base;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.time.Duration;
-import java.util.Date;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -31,7 +30,7 @@ public class TestUtilities extends BaseTestGui {
 		}
 	}
 	public WebElement waitForElementToBeVisible(WebElement element) {
-		WebDriverWait wait = new WebDriverWait(driver, defaultTimeout);
+		WebDriverWait wait = new WebDriverWait(getDriver(), defaultTimeout);
 		return wait.until(ExpectedConditions.visibilityOf(element));
 	}
 	/**
@@ -62,41 +61,37 @@ public class TestUtilities extends BaseTestGui {
 	 *
 	 * Description:
 	 * - The method captures a screenshot using the WebDriver's 'getScreenshotAs' method and saves it to a specified location.
-	 * - The file path for the screenshot includes the current date, test suite name, test name, test method name, and a timestamp, ensuring uniqueness and easy identification.
+	 * - The file path for the screenshot includes the current date, test suite name, test name, test method name, and a timestamp, ensuring uniqueness and easy identification (see ScreenshotPath).
 	 * - Screenshots are saved in the 'screenshots' directory under the 'test-output' folder.
+	 * - Capturing and saving is recorded as the 'screenshot' phase of the invocation in PhaseTimings and as a JFR event.
 	 */
 	protected void takeScreenshot(String fileName) {
-		File scrFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-		String path = System.getProperty("user.dir")
-				+ File.separator + "target"
-				+ File.separator + "test-output" 
-				+ File.separator + "screenshots"
-				+ File.separator + getTodaysDate() 
-				+ File.separator + testSuiteName 
-				+ File.separator + testName
-				+ File.separator + testMethodName 
-				+ File.separator + getSystemTime() 
-				+ " " + fileName + ".png";
+		PhaseTimings.time(PhaseTimings.Phase.SCREENSHOT, () -> saveScreenshot(fileName));
+	}
+
+	private void saveScreenshot(String fileName) {
+		FrameworkEvents.ScreenshotWrite event = new FrameworkEvents.ScreenshotWrite();
+		event.begin();
+		File scrFile = ((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.FILE);
+		String path = ScreenshotPath.build(System.getProperty("user.dir"), LocalDateTime.now(), testSuiteName, testName,
+				InvocationContext.current().getTestMethodName(), fileName);
 		try {
 			FileUtils.copyFile(scrFile, new File(path));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-	}
-
-	/** Today date in yyyyMMdd format */
-	private static String getTodaysDate() {
-		return (new SimpleDateFormat("yyyyMMdd").format(new Date()));
-	}
-
-	/** Current time in HHmmssSSS */
-	private String getSystemTime() {
-		return (new SimpleDateFormat("HHmmssSSS").format(new Date()));
+		event.end();
+		if (event.shouldCommit()) {
+			event.testMethod = FrameworkEvents.testMethod();
+			event.file = path;
+			event.bytes = scrFile.length();
+			event.commit();
+		}
 	}
 
 	/** Get logs from browser console */
 	protected List<LogEntry> getBrowserLogs() {
-		LogEntries log = driver.manage().logs().get("browser");
+		LogEntries log = getDriver().manage().logs().get("browser");
 		List<LogEntry> logList = log.getAll();
 		return logList;
 	}
@@ -0,0 +1,115 @@
+package com.myapp.example.base;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Part of a suite handed to one worker JVM by DistributedCoordinator: one test class of a <test>,
+ * optionally with only one shard of its data provider rows.
+ */
+public class WorkUnit {
+
+	private final int id;
+	private final String suiteName;
+	private final String testName;
+	private final String className;
+	private final List<String> includedMethods;
+	private final Map<String, String> parameters;
+	private final int shardIndex;
+	private final int shardCount;
+	private final long expectedMillis;
+	private int attempts;
+
+	public WorkUnit(int id, String suiteName, String testName, String className, List<String> includedMethods,
+			Map<String, String> parameters, int shardIndex, int shardCount, long expectedMillis) {
+		this.id = id;
+		this.suiteName = suiteName;
+		this.testName = testName;
+		this.className = className;
+		this.includedMethods = includedMethods;
+		this.parameters = parameters;
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+		this.expectedMillis = expectedMillis;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getSuiteName() {
+		return suiteName;
+	}
+
+	public String getTestName() {
+		return testName;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	/** Methods of the class to run, empty for all of them */
+	public List<String> getIncludedMethods() {
+		return includedMethods;
+	}
+
+	/** Suite and <test> parameters, e.g. environment and browser */
+	public Map<String, String> getParameters() {
+		return parameters;
+	}
+
+	/** Shard of data provider rows this unit runs, null if it runs all rows */
+	public DataShard getShard() {
+		return shardCount > 1 ? new DataShard(shardIndex, shardCount, EnvironmentConfig.getProperty("shard.key", null)) : null;
+	}
+
+	/** Expected duration from TestHistoryStore, used to hand out long units first */
+	public long getExpectedMillis() {
+		return expectedMillis;
+	}
+
+	/** Counts hand-outs of this unit, so a unit that keeps crashing workers is given up */
+	int nextAttempt() {
+		return ++attempts;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + id + " " + className + (shardCount > 1 ? " rows " + shardIndex + "/" + shardCount : "") + " (" + testName + ")";
+	}
+
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		json.put("id", id);
+		json.put("suite", suiteName);
+		json.put("test", testName);
+		json.put("class", className);
+		json.put("methods", new JSONArray(includedMethods));
+		json.put("parameters", new JSONObject(parameters));
+		json.put("shardIndex", shardIndex);
+		json.put("shardCount", shardCount);
+		json.put("expectedMillis", expectedMillis);
+		return json;
+	}
+
+	public static WorkUnit fromJson(JSONObject json) {
+		List<String> methods = new ArrayList<>();
+		JSONArray methodArray = json.getJSONArray("methods");
+		for (int i = 0; i < methodArray.length(); i++) {
+			methods.add(methodArray.getString(i));
+		}
+		Map<String, String> parameters = new HashMap<>();
+		JSONObject parameterObject = json.getJSONObject("parameters");
+		for (String key : parameterObject.keySet()) {
+			parameters.put(key, parameterObject.getString(key));
+		}
+		return new WorkUnit(json.getInt("id"), json.getString("suite"), json.getString("test"), json.getString("class"),
+				methods, parameters, json.getInt("shardIndex"), json.getInt("shardCount"), json.getLong("expectedMillis"));
+	}
+}
@@ -0,0 +1,66 @@
+package com.myapp.example.base;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONObject;
+
+/**
+ * Socket between DistributedCoordinator and one DistributedWorker. Every message is one JSON object on its own line.
+ *
+ * Messages:
+ * - worker: {"type":"hello","worker":...}, {"type":"next"}, {"type":"event",...} per finished invocation,
+ *   {"type":"result","unit":...,"xml":...} with testng-results.xml of a finished unit
+ * - coordinator: {"type":"unit",...} with a WorkUnit, {"type":"done"} when no work is left
+ */
+class WorkerConnection implements Closeable {
+
+	static final String HELLO = "hello";
+	static final String NEXT = "next";
+	static final String EVENT = "event";
+	static final String RESULT = "result";
+	static final String UNIT = "unit";
+	static final String DONE = "done";
+
+	private final Socket socket;
+	private final BufferedReader reader;
+	private final Writer writer;
+
+	WorkerConnection(Socket socket) throws IOException {
+		this.socket = socket;
+		this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		this.writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+	}
+
+	/** Sends a message. Safe to call from several threads, e.g. test threads streaming events. */
+	synchronized void send(JSONObject message) throws IOException {
+		writer.write(message.toString());
+		writer.write('\n');
+		writer.flush();
+	}
+
+	/** Waits for the next message, null when the other side closed the connection */
+	JSONObject receive() throws IOException {
+		String line = reader.readLine();
+		return line != null ? new JSONObject(line) : null;
+	}
+
+	static JSONObject message(String type) {
+		return new JSONObject().put("type", type);
+	}
+
+	String getRemoteAddress() {
+		return String.valueOf(socket.getRemoteSocketAddress());
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
@@ -3,6 +3,7 @@ package com.myapp.example.pages;
 import java.util.List;
 import java.time.Duration;
 import org.apache.logging.log4j.Logger;
+import com.myapp.example.base.FrameworkEvents;
 import org.openqa.selenium.*;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.ExpectedCondition;
@@ -42,9 +43,9 @@ public class BasePageObject {
 		try {
 			waitForVisibilityOf(locator, Duration.ofSeconds(5));
 			find(locator).click();
-			log.info("Clicked on element: " + locator.toString());
+			log.info("Clicked on element: {}", locator);
 		} catch (Exception e) {
-			log.error("Error clicking on element: " + locator.toString(), e);
+			log.error("Error clicking on element: {}", locator, e);
 			throw e;
 		}
 	}
@@ -81,18 +82,33 @@ public class BasePageObject {
 
 	/**
 	 * Wait for given number of seconds for element with given locator to be visible
-	 * on the page
+	 * on the page. The wait is recorded as a JFR event, see FrameworkEvents.
 	 */
 	protected void waitForVisibilityOf(By locator, Duration... timeOutInSeconds) {
-		int attempts = 0;
-		while (attempts < 2) {
-			try {
-				waitFor(ExpectedConditions.visibilityOfElementLocated(locator),
-						(timeOutInSeconds.length > 0 ? timeOutInSeconds[0] : null));
-				break;
-			} catch (StaleElementReferenceException e) {
+		Duration timeout = timeOutInSeconds.length > 0 ? timeOutInSeconds[0] : null;
+		FrameworkEvents.Wait event = new FrameworkEvents.Wait();
+		event.begin();
+		try {
+			int attempts = 0;
+			while (attempts < 2) {
+				try {
+					waitFor(ExpectedConditions.visibilityOfElementLocated(locator), timeout);
+					break;
+				} catch (StaleElementReferenceException e) {
+				}
+				attempts++;
+			}
+		} catch (TimeoutException e) {
+			event.timedOut = true;
+			throw e;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.testMethod = FrameworkEvents.testMethod();
+				event.locator = locator.toString();
+				event.timeoutMillis = (timeout != null ? timeout : Duration.ofSeconds(30)).toMillis();
+				event.commit();
 			}
-			attempts++;
 		}
 	}
 
@@ -108,7 +124,7 @@ public class BasePageObject {
 
 	/** Press Key using Actions class */
 	public void pressKeyWithActions(Keys key) {
-		log.info("Pressing " + key.name() + " using Actions class");
+		log.info("Pressing {} using Actions class", key);
 		Actions action = new Actions(driver);
 		action.sendKeys(key).build().perform();
 	}
@@ -159,7 +175,7 @@ public class BasePageObject {
 			Assert.assertTrue(condition);
 			log.info(successMessage);
 		} catch (AssertionError e) {
-			log.error(failureMessage + " Error: " + e.getMessage());
+			log.error("{} Error: {}", failureMessage, e.getMessage());
 			throw e;  // Rethrow to make sure the test fails and the error is reported in test results
 		}
 	}
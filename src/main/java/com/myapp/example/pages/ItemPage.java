@@ -32,10 +32,10 @@ public class ItemPage extends BasePageObject {
             String productName = productNameElement.getText();
             // Assert that the product name matches the expected name
             Assert.assertEquals(productName, expectedName, "Product name does not match the expected name.");
-            log.info("Element found on Item Page with product name: " + productName);
+            log.info("Element found on Item Page with product name: {}", productName);
             return true;
         } catch (NoSuchElementException e) {
-            log.error("Element not found: " + e.getMessage());
+            log.error("Element not found: {}", e.getMessage());
             Assert.fail();
             return false;
         }
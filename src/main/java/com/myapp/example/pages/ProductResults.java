@@ -0,0 +1,287 @@
+package com.myapp.example.pages;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Products of a results page with their prices, in page order, for price statistics of search tests.
+ *
+ * Description:
+ * - Names and prices are kept in two parallel arrays. Products sharing a name are all kept, unlike a map keyed by name.
+ * - Items are identified by their position (0 based). Among equal prices the item earlier on the page counts as lower,
+ *   so every order statistic names exactly one item and repeated calls give the same answer.
+ * - Without a sorted view, order statistics (k-th lowest, median, percentiles) use selection on a copy of the prices
+ *   and nearest-price lookups scan the prices, both linear time. buildSortedView sorts once (n log n), after which
+ *   order statistics are read directly and nearest-price lookups are binary searches. In PriceAnalysisBenchmark
+ *   sorting 100k prices takes about as long as 28 nearest-price scans, so it pays off for repeated lookups on the
+ *   same results, not for a single one.
+ * - The sum is a long and the mean a BigDecimal, exact for any number of items and prices up to Integer.MAX_VALUE.
+ * - Instances are immutable apart from the sorted view and safe to share between threads. Threads racing to build
+ *   the view each build the same one.
+ */
+public class ProductResults {
+
+	private final String[] names;
+	private final int[] prices;
+	// Price in the upper and position in the lower 32 bits, so plain long order is price order with page order for ties
+	private volatile long[] sortedKeys;
+
+	/**
+	 * @param names Product names in page order.
+	 * @param prices Prices in whole currency units, same order and length as the names.
+	 */
+	public ProductResults(String[] names, int[] prices) {
+		if (names.length != prices.length) {
+			throw new IllegalArgumentException("Got " + names.length + " names for " + prices.length + " prices");
+		}
+		this.names = names.clone();
+		this.prices = prices.clone();
+	}
+
+	public int size() {
+		return prices.length;
+	}
+
+	public boolean isEmpty() {
+		return prices.length == 0;
+	}
+
+	public String getName(int item) {
+		return names[item];
+	}
+
+	public int getPrice(int item) {
+		return prices[item];
+	}
+
+	/** Name and price of the item */
+	public Map.Entry<String, Integer> getEntry(int item) {
+		return new AbstractMap.SimpleImmutableEntry<>(names[item], prices[item]);
+	}
+
+	/** Sum of all prices, cannot overflow for fewer than 2^32 items */
+	public long sum() {
+		long sum = 0;
+		for (int price : prices) {
+			sum += price;
+		}
+		return sum;
+	}
+
+	/** Exact mean price, to 34 significant digits */
+	public BigDecimal mean() {
+		requireItems(1);
+		return BigDecimal.valueOf(sum()).divide(BigDecimal.valueOf(prices.length), MathContext.DECIMAL128);
+	}
+
+	/** Mean price rounded half up to the given number of decimals */
+	public double mean(int decimals) {
+		return mean().setScale(decimals, RoundingMode.HALF_UP).doubleValue();
+	}
+
+	/**
+	 * Item with the k-th lowest price.
+	 *
+	 * @param k 0 for the lowest price, 1 for the second lowest, size() - 1 for the highest.
+	 */
+	public int kthLowest(int k) {
+		if (k < 0 || k >= prices.length) {
+			throw new IllegalArgumentException("k must be between 0 and " + (prices.length - 1) + ", was " + k);
+		}
+		return position(orderStatistic(k));
+	}
+
+	/** Median price, the mean of both middle prices for an even number of items */
+	public double median() {
+		return percentile(50);
+	}
+
+	/**
+	 * Price below which the given percentage of prices lies, interpolated linearly between neighbouring prices.
+	 *
+	 * @param percent 0 for the lowest price, 50 for the median, 100 for the highest.
+	 */
+	public double percentile(double percent) {
+		requireItems(1);
+		if (percent < 0 || percent > 100 || Double.isNaN(percent)) {
+			throw new IllegalArgumentException("Percent must be between 0 and 100, was " + percent);
+		}
+		double rank = percent / 100 * (prices.length - 1);
+		int lower = (int) Math.floor(rank);
+		long[] sorted = sortedKeys;
+		long lowerKey;
+		long higherKey;
+		if (sorted != null) {
+			lowerKey = sorted[lower];
+			higherKey = sorted[Math.min(lower + 1, sorted.length - 1)];
+		} else {
+			long[] keys = keys();
+			lowerKey = select(keys, lower);
+			// Selection leaves only larger keys after the selected one, the smallest of them is the next in order
+			higherKey = lowerKey;
+			if (lower + 1 < keys.length) {
+				higherKey = keys[lower + 1];
+				for (int i = lower + 2; i < keys.length; i++) {
+					higherKey = Math.min(higherKey, keys[i]);
+				}
+			}
+		}
+		double lowerPrice = price(lowerKey);
+		return lowerPrice + (rank - lower) * (price(higherKey) - lowerPrice);
+	}
+
+	/**
+	 * Sorts the prices once, so later order statistics are read directly and nearest-price lookups are binary searches.
+	 *
+	 * @return This instance, e.g. results.buildSortedView().closestTo(value).
+	 */
+	public ProductResults buildSortedView() {
+		if (sortedKeys == null) {
+			long[] sorted = keys();
+			Arrays.sort(sorted);
+			sortedKeys = sorted;
+		}
+		return this;
+	}
+
+	/**
+	 * Item whose price is nearest to the given value, by binary search over the sorted view if built, otherwise by
+	 * a scan of the prices. When a lower and a higher price are equally near, the lower price wins.
+	 */
+	public int closestTo(double value) {
+		requireItems(1);
+		long[] sorted = sortedKeys;
+		if (sorted == null) {
+			return scanClosestTo(value);
+		}
+		int higher = firstAtLeast(sorted, value);
+		if (higher == sorted.length) {
+			return firstWithPrice(sorted, price(sorted[sorted.length - 1]));
+		}
+		if (higher == 0) {
+			return position(sorted[0]);
+		}
+		int lowerPrice = price(sorted[higher - 1]);
+		if (value - lowerPrice <= price(sorted[higher]) - value) {
+			return firstWithPrice(sorted, lowerPrice);
+		}
+		return position(sorted[higher]);
+	}
+
+	/** Item whose price is nearest to the mean price */
+	public int closestToMean() {
+		return closestTo(mean().doubleValue());
+	}
+
+	/** Key of the k-th item in price order, from the sorted view if built, otherwise by selection */
+	private long orderStatistic(int k) {
+		long[] sorted = sortedKeys;
+		if (sorted != null) {
+			return sorted[k];
+		}
+		return select(keys(), k);
+	}
+
+	private int scanClosestTo(double value) {
+		int closest = 0;
+		double minDifference = Math.abs(prices[0] - value);
+		for (int i = 1; i < prices.length; i++) {
+			double difference = Math.abs(prices[i] - value);
+			if (difference < minDifference || (difference == minDifference && prices[i] < prices[closest])) {
+				minDifference = difference;
+				closest = i;
+			}
+		}
+		return closest;
+	}
+
+	private long[] keys() {
+		long[] keys = new long[prices.length];
+		for (int i = 0; i < prices.length; i++) {
+			keys[i] = ((long) prices[i] << 32) | i;
+		}
+		return keys;
+	}
+
+	/** First index of the sorted keys whose price is at least the value, the length if there is none */
+	private static int firstAtLeast(long[] sorted, double value) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (price(sorted[middle]) < value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/** Item earliest on the page among those with the given price, which must be present */
+	private static int firstWithPrice(long[] sorted, int price) {
+		return position(sorted[firstAtLeast(sorted, price)]);
+	}
+
+	/**
+	 * Quickselect with a random pivot: rearranges the keys and returns the k-th smallest, linear time on average.
+	 * Keys are distinct, so partitioning needs no special handling of equal values.
+	 */
+	private static long select(long[] keys, int k) {
+		int left = 0;
+		int right = keys.length - 1;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (left < right) {
+			long pivot = keys[left + random.nextInt(right - left + 1)];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					long swap = keys[i];
+					keys[i] = keys[j];
+					keys[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return keys[k];
+			}
+		}
+		return keys[k];
+	}
+
+	private static int price(long key) {
+		return (int) (key >> 32);
+	}
+
+	private static int position(long key) {
+		return (int) key;
+	}
+
+	private void requireItems(int count) {
+		if (prices.length < count) {
+			throw new IllegalArgumentException("Needs at least " + count + " products, got " + prices.length);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return prices.length + " products";
+	}
+}
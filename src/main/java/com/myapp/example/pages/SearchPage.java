@@ -15,6 +15,7 @@ public class SearchPage extends BasePageObject {
 	public By searchedItem = By.cssSelector("#grid-products > *");
 	public By itemName = By.cssSelector(".item__name > *");
 	public By itemPrice = By.cssSelector(".item__bottom__prices__price");
+	public By itemLink = By.cssSelector("a[href]");
 
 	public static String selectedItemName;
 
@@ -39,12 +40,12 @@ public class SearchPage extends BasePageObject {
 		List<WebElement> elements = findAll(searchedItem);
 
 		int count = elements.size();
-		log.info("All items" + count);
+		log.info("All items: {}", count);
 		try {
 			Assert.assertTrue(count > 0, "Displayed count is not greater than 0");
 		} catch (AssertionError e) {
 			// Handle the assertion error
-			log.error("Assertion failed: " + e.getMessage());
+			log.error("Assertion failed: {}", e.getMessage());
 			throw e;
 		}
 
@@ -52,23 +53,24 @@ public class SearchPage extends BasePageObject {
 	}
 
 	/**
-	 * Extracts and maps product names to their corresponding prices from the web page.
+	 * Extracts product names and their prices from the web page.
 	 * This method navigates through the elements on a web page to collect product names and their prices.
 	 *
 	 * @param driver The WebDriver instance used to interact with the web page.
-	 * @return A Map<String, Integer> where each key is a product name and the corresponding value is the product price.
+	 * @return ProductResults with the name and price of every product, in page order.
 	 *
 	 * Description:
 	 * - The method first finds all elements representing products on the page using 'searchedItem'.
 	 * - For each product element, it extracts the product name and price.
 	 * - The method processes the price text to extract numerical values, handling scenarios where the price might be discounted or formatted with non-numeric characters.
-	 * - It then maps each product name to its corresponding price in a HashMap.
+	 * - Products without a price are left out. Products sharing a name are all kept.
 	 */
-	public Map<String, Integer> extractProductPrices(WebDriver driver) {
-		Map<String, Integer> productPrices = new HashMap<>();
-
+	public ProductResults extractProductPrices(WebDriver driver) {
 		// Find product elements
 		List<WebElement> productElements = driver.findElements(searchedItem);
+		String[] names = new String[productElements.size()];
+		int[] prices = new int[productElements.size()];
+		int count = 0;
 
 		// Loop through each product element
 		for (WebElement productElement : productElements) {
@@ -76,122 +78,122 @@ public class SearchPage extends BasePageObject {
 			String productName = productElement.findElement(itemName).getText();
 			String productPrice = productElement.findElement(itemPrice).getText();
 
-			// Default to the first price if the discounted price is not available
-			String priceText = productPrice.isEmpty() ? "" : productPrice;
-			priceText = priceText.replaceAll("[^\\d]", ""); // Remove all non-numeric characters
-
-			if (!priceText.isEmpty()) {
-				int price = Integer.parseInt(priceText);
-				productPrices.put(productName, price);
+			int price = parsePrice(productPrice);
+			if (price >= 0) {
+				names[count] = productName;
+				prices[count] = price;
+				count++;
 			}
 		}
-		return productPrices;
+		return new ProductResults(Arrays.copyOf(names, count), Arrays.copyOf(prices, count));
 	}
 	/**
- 	* Displays the product names and their respective prices from a provided map.
- 	* This method logs the name and price of each product contained within the 'productPrices' map.
- 	*
- 	* @param productPrices A Map containing product names as keys and their prices as values.
+	 * Captures all result tiles currently loaded on the results page, with the URL of the page.
+	 * Used as loader of SearchResultFixture, after the search and scrolling to the bottom for dynamic load.
+	 *
+	 * @param query The searched text the results belong to.
+	 * @return Tiles with name, price, link and position, in page order.
+	 */
+	public SearchResultFixture captureResults(String query) {
+		List<WebElement> productElements = driver.findElements(searchedItem);
+		List<SearchResultFixture.Tile> tiles = new ArrayList<>();
+		for (WebElement productElement : productElements) {
+			String productName = productElement.findElement(itemName).getText();
+			List<WebElement> prices = productElement.findElements(itemPrice);
+			List<WebElement> links = productElement.findElements(itemLink);
+			int price = prices.isEmpty() ? -1 : parsePrice(prices.get(0).getText());
+			String link = links.isEmpty() ? "" : links.get(0).getAttribute("href");
+			tiles.add(new SearchResultFixture.Tile(productName, price, link, tiles.size() + 1));
+		}
+		String resultsUrl = driver.getCurrentUrl();
+		log.info("Captured {} results for '{}' from {}", tiles.size(), query, resultsUrl);
+		return new SearchResultFixture(query, resultsUrl, tiles);
+	}
+	/**
+	 * Opens the results page of a captured query directly by its URL, without the home page and the search box.
+	 * Nothing is loaded if the browser already shows that page, e.g. right after the results were captured.
+	 */
+	public void openResults(SearchResultFixture fixture) {
+		if (fixture.getResultsUrl().equals(driver.getCurrentUrl())) {
+			return;
+		}
+		log.info("Opening results of '{}': {}", fixture.getQuery(), fixture.getResultsUrl());
+		openUrl(fixture.getResultsUrl());
+	}
+	/** Price shown on a tile in whole currency units, -1 if the text holds no digits */
+	private static int parsePrice(String productPrice) {
+		String priceText = productPrice.replaceAll("[^\\d]", ""); // Remove all non-numeric characters
+		return priceText.isEmpty() ? -1 : Integer.parseInt(priceText);
+	}
+	/**
+ 	* Displays the product names and their respective prices.
+ 	* This method logs the name and price of each product contained within 'products'.
  	*
- 	* Description:
- 	* - Iterates over the 'productPrices' Map using a for-each loop on the entrySet.
- 	* - For each entry in the map, logs the product name and its price.
+ 	* @param products Products with their prices, in page order.
  	*
  	* Notes:
  	* - This method is useful for logging purposes, especially in testing scenarios where verification of product pricing is essential.
  	*/
-	public void displayProductPrices(Map<String, Integer> productPrices) {
-		for (Map.Entry<String, Integer> entry : productPrices.entrySet()) {
-			log.info("Product: " + entry.getKey() + ", Price: " + entry.getValue());
+	public void displayProductPrices(ProductResults products) {
+		for (int i = 0; i < products.size(); i++) {
+			log.info("Product: {}, Price: {}", products.getName(i), products.getPrice(i));
 		}
 	}
 	/**
- 	* Calculates the average price of products from a given map.
- 	* This method computes the average price from a Map containing product names and their respective prices.
+ 	* Calculates the average price of the given products.
  	*
- 	* @param productPrices A Map containing product names as keys and their prices as integer values.
+ 	* @param products Products with their prices.
  	* @return The average price calculated from the product prices, rounded to two decimal places.
  	*
  	* Description:
- 	* - First, checks if the provided map is null or empty, throwing IllegalArgumentException if true.
- 	* - Sums all the prices from the map.
- 	* - Calculates the average price by dividing the total sum by the number of products.
- 	* - Rounds the average price to two decimal places for precision.
+ 	* - First, checks if the provided products are null or empty, throwing IllegalArgumentException if true.
+ 	* - Prices are summed as a long and divided exactly as BigDecimal, so thousands of high prices cannot overflow.
+ 	* - Rounds the average price half up to two decimal places.
  	* - Logs the calculated average price for reference.
  	*/
-	public double calculateAveragePrice(Map<String, Integer> productPrices) {
-		if (productPrices == null || productPrices.isEmpty()) {
-			throw new IllegalArgumentException("Product price map cannot be null or empty");
-		}
-		// Summing all prices
-		int totalSum = 0;
-		for (Integer price : productPrices.values()) {
-			totalSum += price;
+	public double calculateAveragePrice(ProductResults products) {
+		if (products == null || products.isEmpty()) {
+			throw new IllegalArgumentException("Products cannot be null or empty");
 		}
-
-		// Calculating average
-		double average = (double) totalSum / productPrices.size();
-		// Rounding to 2 decimal places
-		average = Math.round(average * 100.0) / 100.0;
-		log.info("Calculated average price for all items is : " + average);
+		double average = products.mean(2);
+		log.info("Calculated average price for all items is : {}", average);
 		return average;
 	}
 	/**
- 	* Identifies and returns the map entry with the second-lowest price.
- 	* This method sorts a given map of product prices and retrieves the entry with the second-lowest price.
+ 	* Identifies and returns the product with the second-lowest price.
  	*
- 	* @param productPrices A Map containing product names as keys and their prices as integer values.
- 	* @return A Map.Entry object representing the product with the second-lowest price.
+ 	* @param products Products with their prices.
+ 	* @return A Map.Entry with the name and price of the product with the second-lowest price.
  	*
  	* Description:
- 	* - First, checks if the provided map is null or contains fewer than two items, throwing IllegalArgumentException if true.
- 	* - Converts the map's entry set into a list and sorts it in ascending order based on the price values.
- 	* - Retrieves and returns the second entry from the sorted list, representing the product with the second-lowest price.
+ 	* - First, checks if the provided products are null or fewer than two, throwing IllegalArgumentException if true.
+ 	* - Selects the second-lowest price without sorting all products (see ProductResults.kthLowest).
+ 	* - Of products with equal prices, the one earlier on the page counts as lower.
  	*/
-	public static Map.Entry<String, Integer> findSecondLowestPriceItem(Map<String, Integer> productPrices) {
-		// Check if the map has at least two items
-		if (productPrices == null || productPrices.size() < 2) {
-			throw new IllegalArgumentException("Map must contain at least two items.");
+	public static Map.Entry<String, Integer> findSecondLowestPriceItem(ProductResults products) {
+		// Check if there are at least two items
+		if (products == null || products.size() < 2) {
+			throw new IllegalArgumentException("Products must contain at least two items.");
 		}
-
-		// Convert the entry set to a list and sort it by values (prices)
-		List<Map.Entry<String, Integer>> sortedEntries = new ArrayList<>(productPrices.entrySet());
-		sortedEntries.sort(Comparator.comparing(Map.Entry::getValue));
-
-		// Retrieve the second item from the sorted list
-		return sortedEntries.get(1); // 0 is the first, 1 is the second
+		return products.getEntry(products.kthLowest(1)); // 0 is the lowest, 1 is the second
 	}
 	/**
  	* Finds and returns the product whose price is closest to a given average price.
- 	* This method identifies the product entry from a map whose price value is nearest to the specified average price.
  	*
- 	* @param productPrices A Map containing product names as keys and their prices as integer values.
+ 	* @param products Products with their prices.
  	* @param averagePrice The average price to compare against the product prices.
  	* @return A Map.Entry representing the product with the price closest to the average price.
  	*
  	* Description:
- 	* - Checks if the provided map is null or empty and throws IllegalArgumentException if so.
- 	* - Iterates through each entry in the productPrices map.
- 	* - Calculates the absolute difference between each product's price and the given average price.
- 	* - Keeps track of the product with the minimum difference, updating it as it finds closer matches.
- 	* - Returns the entry (product name and price) with the closest price to the average.
+ 	* - Checks if the provided products are null or empty and throws IllegalArgumentException if so.
+ 	* - Scans the prices once, or uses binary search if the sorted view of the products was built (see ProductResults.closestTo).
+ 	* - When a lower and a higher price are equally close, the lower price is returned.
  	*/
-	public static Entry<String, Integer> findItemClosestToAveragePrice(Map<String, Integer> productPrices, double averagePrice) {
-		if (productPrices == null || productPrices.isEmpty()) {
-			throw new IllegalArgumentException("Product price map cannot be null or empty");
-		}
-
-		// Finding the item with the price closest to the average
-		Entry<String, Integer> closestItem = null;
-		double minDifference = Double.MAX_VALUE;
-		for (Entry<String, Integer> entry : productPrices.entrySet()) {
-			double difference = Math.abs(entry.getValue() - averagePrice);
-			if (difference < minDifference) {
-				minDifference = difference;
-				closestItem = entry;
-			}
+	public static Entry<String, Integer> findItemClosestToAveragePrice(ProductResults products, double averagePrice) {
+		if (products == null || products.isEmpty()) {
+			throw new IllegalArgumentException("Products cannot be null or empty");
 		}
-		return closestItem;
+		return products.getEntry(products.closestTo(averagePrice));
 	}
 	/**
  	* Selects a random item from a list of items on a web page and returns its name.
@@ -220,7 +222,7 @@ public class SearchPage extends BasePageObject {
 		// Find the name or detail of the chosen item
 		WebElement nameElement = randomItem.findElement(itemName);
 		selectedItemName = nameElement.getText();
-		log.info("Random item chosen: "+ selectedItemName);
+		log.info("Random item chosen: {}", selectedItemName);
 		return selectedItemName;
 	}
 	/**
@@ -248,13 +250,13 @@ public class SearchPage extends BasePageObject {
 				}
 			}
 		} catch (NoSuchElementException e) {
-			log.error("Element not found: " + e.getMessage());
+			log.error("Element not found: {}", e.getMessage());
 			Assert.fail();
 		} catch (ElementClickInterceptedException e) {
-			log.error("Element click intercepted: " + e.getMessage());
+			log.error("Element click intercepted: {}", e.getMessage());
 			Assert.fail();
 		} catch (WebDriverException e) {
-			log.error("WebDriver exception occurred: " + e.getMessage());
+			log.error("WebDriver exception occurred: {}", e.getMessage());
 			Assert.fail();
 		}
 	}
@@ -0,0 +1,151 @@
+package com.myapp.example.pages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Search results of one query, captured once from the live results page and shared by all tests of the run.
+ *
+ * Description:
+ * - Holds every result tile with its name, price, link and position, and the URL of the results page.
+ * - get loads the results of a query only on first use. Dependent methods and data rows asking for the same query
+ *   reuse the captured results, concurrent requests wait for a single load.
+ * - A test that needs the live page again opens the results URL directly (see SearchPage.openResults), without going
+ *   through the home page and the search box.
+ * - A failed load is not kept, so the next test tries again.
+ */
+public class SearchResultFixture {
+
+	private static final Map<String, FutureTask<SearchResultFixture>> fixtures = new ConcurrentHashMap<>();
+
+	private final String query;
+	private final String resultsUrl;
+	private final List<Tile> tiles;
+	private final ProductResults products;
+
+	public SearchResultFixture(String query, String resultsUrl, List<Tile> tiles) {
+		this.query = query;
+		this.resultsUrl = resultsUrl;
+		this.tiles = Collections.unmodifiableList(new ArrayList<>(tiles));
+		this.products = priced(tiles);
+	}
+
+	/**
+	 * Returns the results of the query, loading them with the given loader if this run did not capture them yet.
+	 *
+	 * @param query The searched text, as typed in the search box.
+	 * @param loader Opens the results of the query in a browser and captures them, e.g. with SearchPage.captureResults.
+	 */
+	public static SearchResultFixture get(String query, Callable<SearchResultFixture> loader) {
+		FutureTask<SearchResultFixture> task = new FutureTask<>(loader);
+		FutureTask<SearchResultFixture> existing = fixtures.putIfAbsent(query, task);
+		if (existing == null) {
+			task.run();
+		} else {
+			task = existing;
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading search results for " + query, e);
+		} catch (ExecutionException e) {
+			fixtures.remove(query, task);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Could not load search results for " + query, cause);
+		}
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	/** URL of the results page, opens the results without searching again */
+	public String getResultsUrl() {
+		return resultsUrl;
+	}
+
+	/** All result tiles in page order */
+	public List<Tile> getTiles() {
+		return tiles;
+	}
+
+	public int size() {
+		return tiles.size();
+	}
+
+	/**
+	 * Products with their prices in page order, as returned by SearchPage.extractProductPrices.
+	 * Tiles without a price are left out, tiles sharing a name are all kept. Shared by all tests using this query.
+	 */
+	public ProductResults getProducts() {
+		return products;
+	}
+
+	private static ProductResults priced(List<Tile> tiles) {
+		String[] names = new String[tiles.size()];
+		int[] prices = new int[tiles.size()];
+		int count = 0;
+		for (Tile tile : tiles) {
+			if (tile.getPrice() >= 0) {
+				names[count] = tile.getName();
+				prices[count] = tile.getPrice();
+				count++;
+			}
+		}
+		return new ProductResults(Arrays.copyOf(names, count), Arrays.copyOf(prices, count));
+	}
+
+	/** One product tile of the results page */
+	public static class Tile {
+		private final String name;
+		private final int price;
+		private final String link;
+		private final int position;
+
+		/**
+		 * @param price Price in whole currency units, -1 if the tile shows no price.
+		 * @param position Position on the results page, starting at 1.
+		 */
+		public Tile(String name, int price, String link, int position) {
+			this.name = name;
+			this.price = price;
+			this.link = link;
+			this.position = position;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getPrice() {
+			return price;
+		}
+
+		public String getLink() {
+			return link;
+		}
+
+		public int getPosition() {
+			return position;
+		}
+
+		@Override
+		public String toString() {
+			return position + ". " + name + " (" + price + ")";
+		}
+	}
+}
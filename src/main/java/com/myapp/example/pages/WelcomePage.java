@@ -1,6 +1,5 @@
 package com.myapp.example.pages;
 
-import com.myapp.example.base.TestUtilities;
 import com.myapp.example.base.EnvironmentConfig;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.*;
@@ -20,26 +19,25 @@ public class WelcomePage extends BasePageObject {
 		super(driver, log);
 	}
 
-	TestUtilities url = new TestUtilities();
-	String page = url.getUrl();
+	String page = EnvironmentConfig.getBaseUrl();
 
 	/** Open WelcomePage with it's url */
 	public void openPage() {
 	try	{
-		log.info("Opening page: " + page);
+		log.info("Opening page: {}", page);
 		openUrl(page);
 		log.info("Page opened!");
 	} catch (Exception e) {
-		log.error("Failed to open page: " + page, e);
+		log.error("Failed to open page: {}", page, e);
 		}
 	}
 	/** Insert item for search in Search Box without clicking on search button */
 	public void insertInSearchBox(String searchString) {
 	try {
 		type(searchString, searchBox);
-		log.info("In search box inserted: " + searchString);
+		log.info("In search box inserted: {}", searchString);
 	} catch (Exception e) {
-		log.error("Failed to insert in search box: " + searchString, e);
+		log.error("Failed to insert in search box: {}", searchString, e);
 		Assert.fail();
 		}
 	}
@@ -48,18 +46,18 @@ public class WelcomePage extends BasePageObject {
 		try {
 			type(searchString, searchBox);
 			click(searchButton);
-			log.info("Searching button clicked after inserted value: " + searchString);
+			log.info("Searching button clicked after inserted value: {}", searchString);
 		} catch (NoSuchElementException e) {
-			log.error("Element not found: " + e.getMessage());
+			log.error("Element not found: {}", e.getMessage());
 			Assert.fail();
 		} catch (ElementNotInteractableException e) {
-			log.error("Element not interactable: " + e.getMessage());
+			log.error("Element not interactable: {}", e.getMessage());
 			Assert.fail();
 		} catch (WebDriverException e) {
-			log.error("WebDriver exception occurred: " + e.getMessage());
+			log.error("WebDriver exception occurred: {}", e.getMessage());
 			Assert.fail();
 		} catch (Exception e) {
-			log.error("An unexpected error occurred: " + e.getMessage());
+			log.error("An unexpected error occurred: {}", e.getMessage());
 			Assert.fail();
 		}
 	}
@@ -79,16 +77,16 @@ public class WelcomePage extends BasePageObject {
 				click(buttonForAcceptCookies);
 			}
 		} catch (TimeoutException e) {
-			log.error("Timeout waiting for the cookies acceptance button: " + e.getMessage());
+			log.error("Timeout waiting for the cookies acceptance button: {}", e.getMessage());
 			Assert.fail();
 		} catch (NoSuchElementException e) {
-			log.error("Cookies acceptance button not found: " + e.getMessage());
+			log.error("Cookies acceptance button not found: {}", e.getMessage());
 			Assert.fail();
 		} catch (WebDriverException e) {
-			log.error("WebDriver exception occurred: " + e.getMessage());
+			log.error("WebDriver exception occurred: {}", e.getMessage());
 			Assert.fail();
 		} catch (Exception e) {
-			log.error("An unexpected error occurred in acceptCookies: " + e.getMessage());
+			log.error("An unexpected error occurred in acceptCookies: {}", e.getMessage());
 			Assert.fail();
 		}
 	}
@@ -12,7 +12,7 @@ import com.myapp.example.api.utils.UtilsForAPI;
 
 public class ActionsTest extends BaseTest {
 
-    @Test( dataProvider = "csvReader", dataProviderClass = CsvDataProviders.class)
+    @Test( dataProvider = "csvReaderParallel", dataProviderClass = CsvDataProviders.class)
     public void gigatron_006_actionCheck(Map<String, String> testData){
 
         // Test Data extraction from CSV file
@@ -0,0 +1,118 @@
+package com.myapp.example.pages;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class ProductResultsTest {
+
+	@Test
+	public void productResults_001_tiesGoToEarlierItem() {
+		ProductResults products = products(5, 3, 3, 7, 3);
+		// Equal prices are ordered by position on the page
+		Assert.assertEquals(products.kthLowest(0), 1);
+		Assert.assertEquals(products.kthLowest(1), 2);
+		Assert.assertEquals(products.kthLowest(2), 4);
+		Assert.assertEquals(products.kthLowest(4), 3);
+		Assert.assertEquals(products.closestTo(3), 1);
+		// 3 and 5 are equally near to 4, the lower price wins
+		Assert.assertEquals(products.closestTo(4), 1);
+		Assert.assertEquals(products.closestTo(6), 0);
+
+		products.buildSortedView();
+		Assert.assertEquals(products.kthLowest(1), 2);
+		Assert.assertEquals(products.closestTo(3), 1);
+		Assert.assertEquals(products.closestTo(4), 1);
+		Assert.assertEquals(products.closestTo(6), 0);
+	}
+
+	@Test
+	public void productResults_002_singleItem() {
+		for (ProductResults products : new ProductResults[] { products(42), products(42).buildSortedView() }) {
+			Assert.assertEquals(products.kthLowest(0), 0);
+			Assert.assertEquals(products.median(), 42.0);
+			Assert.assertEquals(products.percentile(0), 42.0);
+			Assert.assertEquals(products.percentile(100), 42.0);
+			Assert.assertEquals(products.closestTo(-1000), 0);
+			Assert.assertEquals(products.closestTo(1000), 0);
+			Assert.assertEquals(products.mean(2), 42.0);
+		}
+	}
+
+	@Test
+	public void productResults_003_medianAndPercentiles() {
+		for (boolean sorted : new boolean[] { false, true }) {
+			ProductResults odd = view(products(9, 1, 5), sorted);
+			Assert.assertEquals(odd.median(), 5.0);
+			ProductResults even = view(products(4, 1, 3, 2), sorted);
+			Assert.assertEquals(even.median(), 2.5);
+			Assert.assertEquals(even.percentile(25), 1.75);
+			Assert.assertEquals(even.percentile(0), 1.0);
+			Assert.assertEquals(even.percentile(100), 4.0);
+			ProductResults equal = view(products(7, 7, 7, 7), sorted);
+			Assert.assertEquals(equal.median(), 7.0);
+		}
+	}
+
+	@Test
+	public void productResults_004_meanDoesNotOverflow() {
+		ProductResults products = products(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+		Assert.assertEquals(products.sum(), 3L * Integer.MAX_VALUE);
+		Assert.assertEquals(products.mean(0), (double) Integer.MAX_VALUE);
+		Assert.assertEquals(products(1, 2).mean(2), 1.5);
+		Assert.assertEquals(products(1, 1, 2).mean(2), 1.33);
+	}
+
+	@Test
+	public void productResults_005_sortedViewMatchesSelection() {
+		Random random = new Random(50);
+		for (int round = 0; round < 200; round++) {
+			int[] prices = random.ints(1 + random.nextInt(40), 0, 20).toArray();
+			ProductResults scanned = products(prices);
+			ProductResults sorted = products(prices).buildSortedView();
+			Integer[] expected = byPriceThenPosition(prices);
+			for (int k = 0; k < prices.length; k++) {
+				Assert.assertEquals(scanned.kthLowest(k), (int) expected[k], "k " + k + " of " + Arrays.toString(prices));
+				Assert.assertEquals(sorted.kthLowest(k), (int) expected[k], "k " + k + " of " + Arrays.toString(prices));
+			}
+			for (double percent : new double[] { 0, 10, 25, 50, 75, 90, 100 }) {
+				Assert.assertEquals(scanned.percentile(percent), sorted.percentile(percent), 1e-9,
+						percent + "% of " + Arrays.toString(prices));
+			}
+			for (double value = -1.5; value <= 21; value += 0.5) {
+				Assert.assertEquals(scanned.closestTo(value), sorted.closestTo(value), value + " in " + Arrays.toString(prices));
+			}
+			Assert.assertEquals(scanned.closestToMean(), sorted.closestToMean());
+		}
+	}
+
+	@Test
+	public void productResults_006_invalidArguments() {
+		ProductResults products = products(1, 2, 3);
+		Assert.assertThrows(IllegalArgumentException.class, () -> products.kthLowest(-1));
+		Assert.assertThrows(IllegalArgumentException.class, () -> products.kthLowest(3));
+		Assert.assertThrows(IllegalArgumentException.class, () -> products.percentile(101));
+		Assert.assertThrows(IllegalArgumentException.class, () -> products(new int[0]).median());
+		Assert.assertThrows(IllegalArgumentException.class, () -> new ProductResults(new String[1], new int[2]));
+	}
+
+	private static ProductResults products(int... prices) {
+		String[] names = IntStream.range(0, prices.length).mapToObj(i -> "Product " + i).toArray(String[]::new);
+		return new ProductResults(names, prices);
+	}
+
+	private static ProductResults view(ProductResults products, boolean sorted) {
+		return sorted ? products.buildSortedView() : products;
+	}
+
+	/** Positions ordered by price, equal prices by position, as a stable sort gives them */
+	private static Integer[] byPriceThenPosition(int[] prices) {
+		Integer[] positions = IntStream.range(0, prices.length).boxed().toArray(Integer[]::new);
+		Arrays.sort(positions, Comparator.comparingInt(position -> prices[position]));
+		return positions;
+	}
+}
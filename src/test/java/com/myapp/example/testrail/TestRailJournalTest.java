@@ -0,0 +1,80 @@
+package com.myapp.example.testrail;
+
+import com.myapp.example.base.TestRailAPI;
+import com.myapp.example.base.TestRailJournal;
+import com.myapp.example.testrail.utils.TestRailStandInServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TestRailJournalTest {
+
+    private static final int TEST_RUN_ID = 7;
+
+    private final Logger log = LogManager.getLogger(TestRailJournalTest.class);
+    private TestRailStandInServer server;
+    private Path journalFile;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        Map<String, Integer> cases = new LinkedHashMap<>();
+        cases.put("gigatron_002_insertItem", 2);
+        cases.put("gigatron_006_actionCheck", 6);
+        server = new TestRailStandInServer(TEST_RUN_ID, cases);
+        TestRailAPI.configure("user", "key", server.getUrl());
+        journalFile = Files.createTempDirectory("testrail-journal").resolve("results.jsonl");
+        log.info("Stand-in TestRail on " + server.getUrl() + ", journal " + journalFile);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        TestRailAPI.close();
+        server.close();
+    }
+
+    @Test
+    public void journal_001_replayAfterOutage() throws Exception {
+        // Results produced while TestRail is down are only in the journal
+        try (TestRailJournal journal = TestRailJournal.open(journalFile)) {
+            Assert.assertEquals(journal.append(TEST_RUN_ID, "gigatron_002_insertItem", 1, "passed"), 1);
+            Assert.assertEquals(journal.append(TEST_RUN_ID, "gigatron_006_actionCheck", 5, "failed"), 1);
+            Assert.assertEquals(journal.append(TEST_RUN_ID, "gigatron_006_actionCheck", 1, "passed on retry"), 2);
+        }
+        server.setAvailable(false);
+        try (TestRailJournal journal = TestRailJournal.open(journalFile)) {
+            Assert.assertEquals(journal.replay(), 3, "Nothing should be sent while TestRail is down");
+        }
+        Assert.assertTrue(server.getReceivedResults().isEmpty());
+
+        // Once TestRail is back every result is uploaded exactly once
+        server.setAvailable(true);
+        try (TestRailJournal journal = TestRailJournal.open(journalFile)) {
+            Assert.assertEquals(journal.replay(), 0);
+        }
+        List<JSONObject> received = server.getReceivedResults();
+        Assert.assertEquals(received.size(), 3);
+        Assert.assertEquals(received.get(0).getInt("case_id"), 2);
+        Assert.assertEquals(received.get(2).getString("comment"), "passed on retry");
+    }
+
+    @Test(dependsOnMethods = "journal_001_replayAfterOutage")
+    public void journal_002_replayIsIdempotent() throws Exception {
+        try (TestRailJournal journal = TestRailJournal.open(journalFile)) {
+            Assert.assertEquals(journal.replay(), 0);
+            // Attempt numbering continues after reopening, so a new result is not mistaken for a sent one
+            Assert.assertEquals(journal.append(TEST_RUN_ID, "gigatron_002_insertItem", 5, "failed"), 2);
+            Assert.assertEquals(journal.getUnsentResults().size(), 1);
+        }
+        Assert.assertEquals(server.getReceivedResults().size(), 3, "Replayed results must not be sent twice");
+    }
+}
@@ -0,0 +1,109 @@
+package com.myapp.example.testrail.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal local stand-in for the TestRail API, listening on loopback only.
+ * Serves 'get_tests' for a single run from a title to case ID map and records everything posted to 'add_results_for_cases'.
+ * While unavailable it answers 503 to every request, simulating a TestRail outage.
+ */
+public class TestRailStandInServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final int testRunId;
+    private final Map<String, Integer> cases = new LinkedHashMap<>();
+    private final List<JSONObject> receivedResults = new ArrayList<>();
+    private volatile boolean available = true;
+
+    public TestRailStandInServer(int testRunId, Map<String, Integer> cases) throws IOException {
+        this.testRunId = testRunId;
+        this.cases.putAll(cases);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/index.php", this::handle);
+        this.server.start();
+    }
+
+    /** Base URL to be passed to TestRailAPI.configure */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    /** All result entries received through 'add_results_for_cases' */
+    public synchronized List<JSONObject> getReceivedResults() {
+        return new ArrayList<>(receivedResults);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        // TestRail API path is passed as query string: /index.php?/api/v2/...
+        String endpoint = exchange.getRequestURI().getRawQuery();
+        try (InputStream body = exchange.getRequestBody()) {
+            String request = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            if (!available) {
+                respond(exchange, 503, "{\"error\":\"Service unavailable\"}");
+            } else if (endpoint.startsWith("/api/v2/get_tests/" + testRunId)) {
+                respond(exchange, 200, getTests().toString());
+            } else if (endpoint.startsWith("/api/v2/add_results_for_cases/" + testRunId)) {
+                JSONArray results = new JSONObject(request).getJSONArray("results");
+                synchronized (this) {
+                    for (int i = 0; i < results.length(); i++) {
+                        receivedResults.add(results.getJSONObject(i));
+                    }
+                }
+                respond(exchange, 200, "[]");
+            } else {
+                respond(exchange, 400, "{\"error\":\"Unknown endpoint " + endpoint + "\"}");
+            }
+        }
+    }
+
+    private JSONObject getTests() {
+        JSONArray tests = new JSONArray();
+        int testId = 1000;
+        for (Map.Entry<String, Integer> entry : cases.entrySet()) {
+            JSONObject test = new JSONObject();
+            test.put("id", testId++);
+            test.put("case_id", entry.getValue());
+            test.put("title", entry.getKey());
+            tests.put(test);
+        }
+        JSONObject response = new JSONObject();
+        response.put("offset", 0);
+        response.put("limit", 250);
+        response.put("size", tests.length());
+        response.put("_links", new JSONObject().put("next", JSONObject.NULL));
+        response.put("tests", tests);
+        return response;
+    }
+
+    private void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -3,61 +3,62 @@ package com.myapp.example.ui;
 import com.myapp.example.base.CsvDataProviders;
 import com.myapp.example.base.TestUtilities;
 import com.myapp.example.pages.ItemPage;
+import com.myapp.example.pages.ProductResults;
 import com.myapp.example.pages.SearchPage;
+import com.myapp.example.pages.SearchResultFixture;
 import com.myapp.example.pages.WelcomePage;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 import java.util.Map;
 import java.util.Map.Entry;
 
 public class SearchTests extends TestUtilities {
 
-	protected static String itemForSearching;
-	private static double averagePrice;
-	private static int countedItems;
-	private static Map<String, Integer> products;
+	// Rows of gigatron_002 run in CSV order, so the searched item used by gigatron_003 and gigatron_005 is always the
+	// one of the last row. Results of gigatron_003 are published for gigatron_004.
+	private volatile String itemForSearching;
+	private volatile double averagePrice;
+	private volatile int countedItems;
+	private volatile ProductResults products;
 
 	@Test( dataProvider = "csvReader", dataProviderClass = CsvDataProviders.class)
 	public void gigatron_002_insertItem(Map<String, String> testData){
 		// Test Data extraction from CSV file
-		itemForSearching = testData.get("itemForSearching");
+		String item = testData.get("itemForSearching");
 
-		WelcomePage welcomePage = new WelcomePage(driver, log);
+		WelcomePage welcomePage = new WelcomePage(getDriver(), log);
 		//Open main page
 		welcomePage.openPage();
 
 		//Insert text in searchBox
-		welcomePage.insertInSearchBox(itemForSearching);
+		welcomePage.insertInSearchBox(item);
 
 		welcomePage.validateDropDownItem();
+		itemForSearching = item;
 	}
 
 	@Test(dependsOnMethods = "gigatron_002_insertItem")
 	public void gigatron_003_searchItemsAverageValue(){
-		WelcomePage welcomePage = new WelcomePage(driver, log);
-		SearchPage searchPage = new SearchPage(driver, log);
-		// open main page
-		welcomePage.openPage();
-
-		welcomePage.search(itemForSearching);
-
-		//Scroll all the way to the bottom with dynamic load of items while scrolling
-		searchPage.scrollToBottomForDynamicLoad();
+		SearchPage searchPage = new SearchPage(getDriver(), log);
+		//Search results are loaded in the browser only once per run and shared with other methods
+		SearchResultFixture results = loadSearchResults(itemForSearching);
 
 		//validateDisplayed items are more than 0
-		 countedItems = searchPage.validateDisplayedItemsCount();
+		countedItems = results.size();
+		Assert.assertTrue(countedItems > 0, "Displayed count is not greater than 0");
 
-		//extract all Products from page. Create Map with all products and prices as key-value pair
-		products = searchPage.extractProductPrices(driver);
+		//All Products from page with their prices, products sharing a name included
+		products = results.getProducts();
 		//display in log all extracted products. Could be skipped. Left only for presentational purposes
 		//searchPage.displayProductPrices(products);
 
-		//Calculate average price from collected Map. Pass that map in next function
+		//Calculate average price from collected products. Pass them in next function
 		averagePrice = searchPage.calculateAveragePrice(products);
 	}
 
 	@Test(dependsOnMethods = {"gigatron_003_searchItemsAverageValue","gigatron_002_insertItem"})
 	public void gigatron_004_searchItemsReturnBasedOnCondition() {
-		SearchPage searchPage = new SearchPage(driver, log);
+		SearchPage searchPage = new SearchPage(getDriver(), log);
 
 		//Find item with second-lowest price if total number of items is even
 		if (countedItems % 2 == 0) {
@@ -71,15 +72,17 @@ public class SearchTests extends TestUtilities {
 	}
 	@Test(dependsOnMethods = "gigatron_002_insertItem")
 	public void gigatron_005_searchItemsRandomSelectItem(){
-		WelcomePage welcomePage = new WelcomePage(driver, log);
-		SearchPage searchPage = new SearchPage(driver, log);
-		ItemPage itemPage = new ItemPage(driver, log);
+		WelcomePage welcomePage = new WelcomePage(getDriver(), log);
+		SearchPage searchPage = new SearchPage(getDriver(), log);
+		ItemPage itemPage = new ItemPage(getDriver(), log);
 
+		SearchResultFixture results = loadSearchResults(itemForSearching);
 		//Open main page
 		welcomePage.openPage();
 		takeScreenshot("WelcomePage opened");
 		welcomePage.acceptCookies();
-		welcomePage.search(itemForSearching);
+		//Open results page directly, without searching again
+		searchPage.openResults(results);
 
 		//Select Random Item
 		String randomItemName = searchPage.selectRandomItem();
@@ -92,4 +95,22 @@ public class SearchTests extends TestUtilities {
 		searchPage.validateItem(randomItemName);
 		takeScreenshot("ItemPage opened");
 	}
+
+	/**
+	 * Results of the query, searched and captured in the browser only the first time in this run.
+	 * Later calls, also from other methods and data rows, get the captured results without opening any page.
+	 */
+	private SearchResultFixture loadSearchResults(String query) {
+		return SearchResultFixture.get(query, () -> {
+			WelcomePage welcomePage = new WelcomePage(getDriver(), log);
+			SearchPage searchPage = new SearchPage(getDriver(), log);
+			// open main page
+			welcomePage.openPage();
+			welcomePage.search(query);
+			//Scroll all the way to the bottom with dynamic load of items while scrolling
+			searchPage.scrollToBottomForDynamicLoad();
+			searchPage.validateDisplayedItemsCount();
+			return searchPage.captureResults(query);
+		});
+	}
 }